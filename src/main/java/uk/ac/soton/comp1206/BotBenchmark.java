@@ -0,0 +1,74 @@
+package uk.ac.soton.comp1206;
+
+import uk.ac.soton.comp1206.bot.Bot;
+import uk.ac.soton.comp1206.bot.Move;
+import uk.ac.soton.comp1206.game.GameEngine;
+
+import java.util.Random;
+
+/**
+ * Command line entry point which lets the Bot play seeded games on the headless GameEngine and reports how many
+ * positions per second it searches and how long each decision takes.
+ *
+ * Usage: BotBenchmark [games] [seed] [cols] [rows] [budget in ms, 0 for a full two ply search]
+ *                     [symmetry keys, true or false, default true]
+ */
+public class BotBenchmark {
+
+    /**
+     * Stop a single game after this many moves, as the bot can survive indefinitely on small boards
+     */
+    private static final int MAX_MOVES = 1_000;
+
+    /**
+     * Run the benchmark
+     * @param args commandline arguments: number of games, seed, columns, rows, time budget and
+     *             whether to key the transposition table by symmetry
+     */
+    public static void main(String[] args) {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 0;
+        int cols = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        int rows = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+        long budget = args.length > 4 ? Long.parseLong(args[4]) : 0;
+        boolean symmetry = args.length <= 5 || Boolean.parseBoolean(args[5]);
+
+        System.out.println("Bot playing " + games + " games on " + cols + " x " + rows + " with seed " + seed
+                + (budget > 0 ? ", budget " + budget + " ms" : ", full two ply search")
+                + (symmetry ? ", symmetric keys" : ""));
+
+        var bot = new Bot();
+        bot.setSymmetry(symmetry);
+        long moves = 0;
+        long totalScore = 0;
+        long slowest = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < games; i++) {
+            var engine = new GameEngine(cols, rows, new Random(seed + i));
+            int played = 0;
+            while (!engine.isGameOver() && played < MAX_MOVES) {
+                long before = System.nanoTime();
+                Move move = budget > 0 ? bot.findBestMoveWithin(engine, budget) : bot.findBestMove(engine, 2);
+                slowest = Math.max(slowest, System.nanoTime() - before);
+                if (move == null) {
+                    engine.timerExpired();
+                } else {
+                    bot.play(engine, move);
+                }
+                played++;
+            }
+            moves += played;
+            totalScore += engine.getScore();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long positions = bot.getPositionsSearched();
+
+        System.out.printf("Made %d moves in %.3f s, average score %.1f%n", moves, seconds, (double) totalScore / games);
+        System.out.printf("Searched %d positions%n", positions);
+        System.out.printf("%.0f positions/sec, %.3f ms per move, slowest %.3f ms%n",
+                positions / seconds, seconds * 1000 / moves, slowest / 1e6);
+        var table = bot.getTable();
+        System.out.printf("Transposition table: %d probes, %.1f%% hits, %d replacements%n",
+                table.getProbes(), table.getHitRate() * 100, table.getReplacements());
+    }
+}
@@ -0,0 +1,94 @@
+package uk.ac.soton.comp1206;
+
+import uk.ac.soton.comp1206.replay.Replay;
+import uk.ac.soton.comp1206.replay.ReplayPlayer;
+import uk.ac.soton.comp1206.replay.SeekableReplay;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Command line entry point which plays recorded games back on the headless GameEngine, checks each one reaches the
+ * score it was recorded with (and, for files with snapshots, that seeking to the end from the last snapshot does too),
+ * then plays them all repeatedly and reports how many inputs per second the engine handles. Does not start JavaFX.
+ *
+ * Usage: Replayer [replay file or folder] [repeats]
+ */
+public class Replayer {
+
+    /**
+     * Run the replays
+     * @param args commandline arguments: replay file or folder of replays, and number of times to repeat them
+     * @throws IOException if the folder cannot be listed
+     */
+    public static void main(String[] args) throws IOException {
+        Path path = Paths.get(args.length > 0 ? args[0] : "replays");
+        int repeats = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+
+        List<Path> files = new ArrayList<>();
+        if (Files.isDirectory(path)) {
+            try (Stream<Path> list = Files.list(path)) {
+                list.filter(f -> f.toString().endsWith(".ttr")).sorted().forEach(files::add);
+            }
+        } else {
+            files.add(path);
+        }
+
+        List<Replay> replays = new ArrayList<>();
+        long inputs = 0;
+        long bytes = 0;
+        int seekable = 0;
+        int mismatches = 0;
+        for (Path file : files) {
+            Replay replay;
+            try {
+                replay = Replay.read(file);
+                int score = ReplayPlayer.play(replay).getScore();
+                if (score != replay.getScore()) {
+                    System.out.println(file + ": recorded score " + replay.getScore() + ", replayed " + score);
+                    mismatches++;
+                }
+                SeekableReplay seekableReplay = SeekableReplay.openIfIndexed(file);
+                if (seekableReplay != null) {
+                    seekable++;
+                    int seeked = seekableReplay.seek(replay.getInputCount()).getScore();
+                    if (seeked != replay.getScore()) {
+                        System.out.println(file + ": recorded score " + replay.getScore() + ", seeked " + seeked);
+                        mismatches++;
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                //One bad file is reported and counted, and does not stop the rest being checked
+                System.out.println(file + ": " + e.getMessage());
+                mismatches++;
+                continue;
+            }
+            replays.add(replay);
+            inputs += replay.getInputCount();
+            bytes += replay.toBytes().length;
+        }
+        System.out.printf("Verified %d replays (%d with snapshots), %d mismatches%n",
+                files.size(), seekable, mismatches);
+        System.out.printf("%d inputs in %d bytes without snapshots (%.2f bytes per input)%n",
+                inputs, bytes, inputs == 0 ? 0 : (double) bytes / inputs);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < repeats; i++) {
+            for (Replay replay : replays) {
+                ReplayPlayer.play(replay);
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("Replayed %d times in %.3f s, %.0f inputs/sec%n",
+                repeats, seconds, inputs * repeats / seconds);
+
+        if (mismatches > 0) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package uk.ac.soton.comp1206;
+
+import uk.ac.soton.comp1206.game.GameEngine;
+
+import java.util.Random;
+
+/**
+ * Command line entry point which plays seeded random games on the headless GameEngine as fast as it can and reports
+ * how many games per second were played. Does not start JavaFX, so it can run on machines without a display.
+ *
+ * Usage: Simulator [games] [seed] [cols] [rows]
+ */
+public class Simulator {
+
+    /**
+     * Stop a single game after this many moves, in case random play never runs out of lives
+     */
+    private static final int MAX_MOVES = 100_000;
+
+    /**
+     * Run the simulation
+     * @param args commandline arguments: number of games, seed, columns and rows
+     */
+    public static void main(String[] args) {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 0;
+        int cols = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        int rows = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+
+        System.out.println("Simulating " + games + " games on " + cols + " x " + rows + " with seed " + seed);
+
+        long totalMoves = 0;
+        long totalScore = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < games; i++) {
+            //Each game gets its own seed so any single game can be reproduced
+            var engine = new GameEngine(cols, rows, new Random(seed + i));
+            totalMoves += play(engine, new Random(~(seed + i)));
+            totalScore += engine.getScore();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("Played %d games (%d moves) in %.3f s%n", games, totalMoves, seconds);
+        System.out.printf("%.1f games/sec, %.1f moves/sec, average score %.1f%n",
+                games / seconds, totalMoves / seconds, (double) totalScore / games);
+    }
+
+    /**
+     * Play one game to the end, choosing a random rotation and then a random legal position each turn. When the piece
+     * fits nowhere the timer is treated as having run out.
+     * @param engine engine to play
+     * @param random random source for the player's choices
+     * @return number of moves made
+     */
+    static int play(GameEngine engine, Random random) {
+        int cols = engine.getBoard().getCols();
+        int rows = engine.getBoard().getRows();
+        int[] legal = new int[cols * rows];
+        int moves = 0;
+
+        while (!engine.isGameOver() && moves < MAX_MOVES) {
+            engine.rotateCurrentPiece(random.nextInt(4));
+
+            int count = 0;
+            var piece = engine.getCurrentPiece();
+            for (int y = 0; y < rows; y++) {
+                long anchors = engine.getPlacements().getRow(y, piece);
+                while (anchors != 0) {
+                    legal[count++] = y * cols + Long.numberOfTrailingZeros(anchors);
+                    anchors &= anchors - 1;
+                }
+            }
+
+            if (count == 0) {
+                engine.timerExpired();
+            } else {
+                int chosen = legal[random.nextInt(count)];
+                engine.place(chosen % cols, chosen / cols);
+            }
+            moves++;
+        }
+        return moves;
+    }
+}
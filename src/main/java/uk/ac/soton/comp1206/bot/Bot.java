@@ -0,0 +1,397 @@
+package uk.ac.soton.comp1206.bot;
+
+import uk.ac.soton.comp1206.game.BitBoard;
+import uk.ac.soton.comp1206.game.GameEngine;
+import uk.ac.soton.comp1206.game.GamePiece;
+import uk.ac.soton.comp1206.game.LineClear;
+import uk.ac.soton.comp1206.game.Symmetry;
+import uk.ac.soton.comp1206.game.Zobrist;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The Bot is an AI player for a GameEngine. It searches every placement of the current piece in all 4 rotations, and
+ * of the following piece if the two were swapped, then one ply deeper over the piece that would come next. Each
+ * resulting board is scored by the points the placements earn, using the game's own score and multiplier rules, plus
+ * a heuristic that prefers empty space and penalises enclosed holes.
+ *
+ * The first ply is split into one task per piece, rotation and row, and spread over a fork-join pool. Each worker
+ * thread keeps its own scratch boards, so the search does not allocate per position.
+ *
+ * The value of the best reply from each board reached after the first ply is kept in a transposition table shared by
+ * all the threads, keyed by the board's Zobrist hash, the next piece and the multiplier. Different first moves that
+ * clear lines to the same board, or the same board reached again on a later turn, are then looked up instead of being
+ * searched again. By default boards are keyed by their canonical form under rotation and reflection, so a board that is
+ * a mirror image or rotation of one already searched is looked up too.
+ */
+public class Bot {
+
+    /**
+     * Value of each empty cell on a resulting board
+     */
+    private static final double EMPTY_WEIGHT = 2.0;
+
+    /**
+     * Penalty for each empty cell with no empty neighbour, which few pieces can ever fill
+     */
+    private static final double HOLE_WEIGHT = 15.0;
+
+    /**
+     * Penalty for a board the next piece cannot be placed on at all
+     */
+    private static final double STUCK_PENALTY = 1000.0;
+
+    /**
+     * The pool the search is spread over
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * Results shared between search threads, or null to search without one
+     */
+    private final TranspositionTable table;
+
+    /**
+     * The total number of positions evaluated by this bot
+     */
+    private final LongAdder positions = new LongAdder();
+
+    /**
+     * Per thread scratch boards, so searches do not allocate
+     */
+    private final ThreadLocal<Scratch> scratch = new ThreadLocal<>();
+
+    /**
+     * Whether to key the transposition table by the canonical form of each board
+     */
+    private volatile boolean symmetry = true;
+
+    /**
+     * Create a new Bot using the common fork-join pool and a 2^18 entry transposition table
+     */
+    public Bot() {
+        this(ForkJoinPool.commonPool(), new TranspositionTable(18));
+    }
+
+    /**
+     * Create a new Bot searching on the given pool
+     * @param pool pool to spread the search over
+     * @param table transposition table to share between threads, or null for none
+     */
+    public Bot(ForkJoinPool pool, TranspositionTable table) {
+        this.pool = pool;
+        this.table = table;
+    }
+
+    /**
+     * Find the best move searching to a fixed depth
+     * @param engine the game to find a move for
+     * @param depth 1 to only look at the current placement, 2 to also look at the next piece
+     * @return the best move, or null if no piece can be placed anywhere
+     * @throws IllegalArgumentException if depth is not 1 or 2
+     */
+    public Move findBestMove(GameEngine engine, int depth) {
+        if (depth < 1 || depth > 2) {
+            throw new IllegalArgumentException("Search depth must be 1 or 2, not " + depth);
+        }
+        return search(engine, depth, Long.MAX_VALUE);
+    }
+
+    /**
+     * Find the best move within a time budget. A single ply search is run first, then replaced by a two ply search if
+     * that finishes before the budget runs out. If the budget runs out during the single ply search, the best move it
+     * had found is returned, which has looked at at least one placement along each row.
+     * @param engine the game to find a move for
+     * @param millis time budget in milliseconds
+     * @return the best move, or null if no piece can be placed anywhere
+     */
+    public Move findBestMoveWithin(GameEngine engine, long millis) {
+        long deadline = System.nanoTime() + Math.max(0, millis) * 1_000_000;
+        Move best = search(engine, 1, deadline);
+        if (best == null || System.nanoTime() > deadline) {
+            return best;
+        }
+        Move deeper = search(engine, 2, deadline);
+        return deeper != null ? deeper : best;
+    }
+
+    /**
+     * Play a move found by this bot on the given engine
+     * @param engine the game to play on
+     * @param move the move to make
+     * @return true if the piece was placed
+     */
+    public boolean play(GameEngine engine, Move move) {
+        if (move.isSwap()) {
+            engine.swapCurrentPiece();
+        }
+        engine.rotateCurrentPiece(move.getRotation() - engine.getCurrentPiece().getRotation());
+        return engine.place(move.getX(), move.getY());
+    }
+
+    /**
+     * Set whether boards related by rotation or reflection share transposition table entries. The table is cleared, as
+     * the two kinds of key cannot be mixed.
+     * @param symmetry true to key boards by their canonical form
+     */
+    public void setSymmetry(boolean symmetry) {
+        this.symmetry = symmetry;
+        if (table != null) {
+            table.clear();
+        }
+    }
+
+    /**
+     * @return the transposition table used by this bot, or null if it has none
+     */
+    public TranspositionTable getTable() {
+        return table;
+    }
+
+    /**
+     * @return total number of positions evaluated by this bot
+     */
+    public long getPositionsSearched() {
+        return positions.sum();
+    }
+
+    /**
+     * Search every first placement in parallel to the given depth
+     * @param engine the game to search
+     * @param depth search depth, 1 or 2
+     * @param deadline System.nanoTime value to give up at
+     * @return the best move, or null if there is none or a two ply search passed the deadline. A single ply search
+     * which passes the deadline gives the best move it had found.
+     */
+    private Move search(GameEngine engine, int depth, long deadline) {
+        BitBoard root = engine.getBoard();
+        GamePiece current = engine.getCurrentPiece();
+        GamePiece following = engine.getFollowingPiece();
+        int multiplier = engine.getMultiplier();
+        AtomicBoolean aborted = new AtomicBoolean(false);
+        if (table != null) {
+            table.newSearch();
+        }
+
+        List<Callable<Move>> tasks = new ArrayList<>();
+        addTasks(tasks, root, false, current, following, multiplier, depth, deadline, aborted);
+        //Swapping to the same type of piece cannot lead anywhere new
+        if (following.getType() != current.getType()) {
+            addTasks(tasks, root, true, following, current, multiplier, depth, deadline, aborted);
+        }
+
+        Move best = null;
+        try {
+            for (Future<Move> result : pool.invokeAll(tasks)) {
+                Move move = result.get();
+                if (move != null && (best == null || move.getValue() > best.getValue())) {
+                    best = move;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Bot search failed", e.getCause());
+        }
+        //A partial second ply is not comparable between moves, but a partial first ply still gives a legal move
+        return aborted.get() && depth > 1 ? null : best;
+    }
+
+    /**
+     * Add one search task per distinct rotation of a piece and row of the board
+     */
+    private void addTasks(List<Callable<Move>> tasks, BitBoard root, boolean swap, GamePiece piece, GamePiece next,
+                          int multiplier, int depth, long deadline, AtomicBoolean aborted) {
+        for (int rotation = 0; rotation < GamePiece.ROTATIONS; rotation++) {
+            GamePiece rotated = piece.rotate(rotation - piece.getRotation());
+            if (isRepeatedRotation(rotated)) continue;
+            for (int y = 0; y < root.getRows(); y++) {
+                int row = y;
+                tasks.add(() -> searchRow(root, swap, rotated, row, next, multiplier, depth, deadline, aborted));
+            }
+        }
+    }
+
+    /**
+     * Check whether an earlier rotation of the same piece has exactly the same shape, as with the Dot or Plus
+     * @param piece rotated piece
+     * @return true if this rotation can be skipped
+     */
+    private static boolean isRepeatedRotation(GamePiece piece) {
+        for (int earlier = 0; earlier < piece.getRotation(); earlier++) {
+            if (GamePiece.createPiece(piece.getType(), earlier).getMask() == piece.getMask()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Evaluate every placement of a piece along one row of the root board
+     * @return the best move in the row, or null if there is none
+     */
+    private Move searchRow(BitBoard root, boolean swap, GamePiece piece, int y, GamePiece next, int multiplier,
+                           int depth, long deadline, AtomicBoolean aborted) {
+        Scratch s = scratch(root);
+        //Rotation of the next piece does not matter, as every rotation of it is tried
+        long nextKey = Zobrist.piece(GamePiece.createPiece(next.getType()), Zobrist.FOLLOWING);
+        long anchors = root.getLegalAnchors(y, piece);
+        long searched = 0;
+        Move best = null;
+        while (anchors != 0) {
+            //A single ply search looks at one placement in the row before giving up, so it always has a move
+            if ((depth > 1 || best != null) && (aborted.get() || System.nanoTime() > deadline)) {
+                aborted.set(true);
+                break;
+            }
+            int x = Long.numberOfTrailingZeros(anchors);
+            anchors &= anchors - 1;
+
+            s.first.copyFrom(root);
+            s.first.playPiece(x, y, piece);
+            int newMultiplier = clear(s.first, s.lineClear, x, y, piece, multiplier);
+            double value = gained(s.lineClear, newMultiplier);
+            searched++;
+
+            if (depth > 1) {
+                long boardKey = symmetry ? Symmetry.canonicalHash(s.first, next, null, true) : s.first.getHash() ^ nextKey;
+                long key = boardKey ^ Zobrist.multiplier(newMultiplier);
+                double reply = table == null ? Double.NaN : table.probe(key, 1);
+                if (Double.isNaN(reply)) {
+                    reply = bestReply(s, next, newMultiplier);
+                    searched += s.searched;
+                    if (table != null) {
+                        table.store(key, 1, reply);
+                    }
+                }
+                value += reply;
+            } else {
+                value += evaluate(s.first);
+            }
+
+            if (best == null || value > best.getValue()) {
+                best = new Move(swap, piece.getRotation(), x, y, value);
+            }
+        }
+        positions.add(searched);
+        return best;
+    }
+
+    /**
+     * Find the value of the best placement of the next piece on the first scratch board
+     * @param s scratch boards for this thread
+     * @param next the next piece
+     * @param multiplier multiplier after the first placement
+     * @return best value reachable, including the points the placement earns
+     */
+    private double bestReply(Scratch s, GamePiece next, int multiplier) {
+        BitBoard board = s.first;
+        double best = Double.NEGATIVE_INFINITY;
+        s.searched = 0;
+        for (int rotation = 0; rotation < GamePiece.ROTATIONS; rotation++) {
+            GamePiece piece = next.rotate(rotation - next.getRotation());
+            if (isRepeatedRotation(piece)) continue;
+            for (int y = 0; y < board.getRows(); y++) {
+                long anchors = board.getLegalAnchors(y, piece);
+                while (anchors != 0) {
+                    int x = Long.numberOfTrailingZeros(anchors);
+                    anchors &= anchors - 1;
+
+                    s.second.copyFrom(board);
+                    s.second.playPiece(x, y, piece);
+                    int newMultiplier = clear(s.second, s.lineClear, x, y, piece, multiplier);
+                    double value = gained(s.lineClear, newMultiplier) + evaluate(s.second);
+                    s.searched++;
+                    if (value > best) {
+                        best = value;
+                    }
+                }
+            }
+        }
+        if (best == Double.NEGATIVE_INFINITY) {
+            return evaluate(board) - STUCK_PENALTY;
+        }
+        return best;
+    }
+
+    /**
+     * Clear any full lines after a placement
+     * @return the multiplier after the placement
+     */
+    private static int clear(BitBoard board, LineClear lineClear, int x, int y, GamePiece piece, int multiplier) {
+        int lines = lineClear.find(board, x, y, piece);
+        if (lines == 0) {
+            return 1;
+        }
+        lineClear.clear(board);
+        return multiplier + 1;
+    }
+
+    /**
+     * @return the points earned by the lines last found, at the given multiplier
+     */
+    private static double gained(LineClear lineClear, int multiplier) {
+        return GameEngine.calcScore(lineClear.getLineCount(), lineClear.getBlockCount(), multiplier);
+    }
+
+    /**
+     * Score a board on its shape alone. Empty cells are good, and empty cells boxed in on all four sides by blocks or
+     * the edge of the board are bad, as only a Dot can fill them.
+     * @param board board to score
+     * @return heuristic value
+     */
+    static double evaluate(BitBoard board) {
+        long cells = board.getFullRow() << 1;
+        int empty = 0;
+        int holes = 0;
+        long above = board.getOccupancyWord(-1);
+        long row = board.getOccupancyWord(0);
+        for (int y = 0; y < board.getRows(); y++) {
+            long below = board.getOccupancyWord(y + 1);
+            long free = ~row & cells;
+            empty += Long.bitCount(free);
+            holes += Long.bitCount(free & (row << 1) & (row >>> 1) & above & below);
+            above = row;
+            row = below;
+        }
+        return EMPTY_WEIGHT * empty - HOLE_WEIGHT * holes;
+    }
+
+    /**
+     * Get the scratch boards for the current thread, making new ones if the board size has changed
+     * @param root board being searched
+     * @return scratch boards
+     */
+    private Scratch scratch(BitBoard root) {
+        Scratch s = scratch.get();
+        if (s == null || s.first.getCols() != root.getCols() || s.first.getRows() != root.getRows()) {
+            s = new Scratch(root.getCols(), root.getRows());
+            scratch.set(s);
+        }
+        return s;
+    }
+
+    /**
+     * Boards and line clearing state reused by one search thread
+     */
+    private static class Scratch {
+        final BitBoard first;
+        final BitBoard second;
+        final LineClear lineClear;
+        long searched;
+
+        Scratch(int cols, int rows) {
+            first = new BitBoard(cols, rows);
+            second = new BitBoard(cols, rows);
+            lineClear = new LineClear(cols, rows);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package uk.ac.soton.comp1206.bot;
+
+/**
+ * A Move chosen by the Bot: whether to swap to the following piece first, which rotation of the piece to use, and the
+ * column and row to place its centre at.
+ */
+public class Move {
+
+    /**
+     * Whether the current and following pieces are swapped before placing
+     */
+    private final boolean swap;
+
+    /**
+     * The rotation of the piece to place, 0 to 3
+     */
+    private final int rotation;
+
+    /**
+     * The column to place at
+     */
+    private final int x;
+
+    /**
+     * The row to place at
+     */
+    private final int y;
+
+    /**
+     * The value the bot gave this move
+     */
+    private final double value;
+
+    /**
+     * Create a new Move
+     * @param swap whether to swap pieces first
+     * @param rotation rotation of the piece to place
+     * @param x column
+     * @param y row
+     * @param value the value the bot gave this move
+     */
+    public Move(boolean swap, int rotation, int x, int y, double value) {
+        this.swap = swap;
+        this.rotation = rotation;
+        this.x = x;
+        this.y = y;
+        this.value = value;
+    }
+
+    /**
+     * @return true if the pieces are swapped before placing
+     */
+    public boolean isSwap() {
+        return swap;
+    }
+
+    /**
+     * @return rotation of the piece to place, 0 to 3
+     */
+    public int getRotation() {
+        return rotation;
+    }
+
+    /**
+     * @return column to place at
+     */
+    public int getX() {
+        return x;
+    }
+
+    /**
+     * @return row to place at
+     */
+    public int getY() {
+        return y;
+    }
+
+    /**
+     * @return the value the bot gave this move
+     */
+    public double getValue() {
+        return value;
+    }
+
+    /**
+     * Return a string representation of this Move
+     * @return string representation
+     */
+    @Override public String toString() {
+        return "Move [swap = " + swap + ", rotation = " + rotation + ", x = " + x + ", y = " + y + ", value = " + value + "]";
+    }
+}
@@ -0,0 +1,180 @@
+package uk.ac.soton.comp1206.bot;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A fixed size table of search results keyed by Zobrist hash, which can be shared by concurrent search threads without
+ * locking.
+ *
+ * Each slot is two longs: the entry data (value, depth, search generation) and the key XORed with that data. A reader
+ * only trusts a slot if XORing the two back together gives the key it asked for, so an entry torn by two threads
+ * writing at once simply reads as a miss rather than as a wrong value.
+ *
+ * When two keys share a slot, the new entry replaces the old one if the old one is from an earlier search or was
+ * searched no deeper.
+ */
+public class TranspositionTable {
+
+    /**
+     * Set in the data of every slot that has been written
+     */
+    private static final long VALID = 1L << 48;
+
+    /**
+     * Slots, two longs each: key ^ data, then data
+     */
+    private final AtomicLongArray slots;
+
+    /**
+     * Mask selecting a slot index from a key
+     */
+    private final int mask;
+
+    /**
+     * The current search generation, entries from older generations are replaced first
+     */
+    private volatile int generation = 0;
+
+    private final LongAdder probes = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder stores = new LongAdder();
+    private final LongAdder replacements = new LongAdder();
+
+    /**
+     * Create a new TranspositionTable
+     * @param bits the table holds 2^bits entries
+     */
+    public TranspositionTable(int bits) {
+        if (bits < 1 || bits > 28) {
+            throw new IllegalArgumentException("Unsupported table size: 2^" + bits);
+        }
+        this.mask = (1 << bits) - 1;
+        this.slots = new AtomicLongArray(2 << bits);
+    }
+
+    /**
+     * Start a new search, so that entries from previous searches are replaced in preference to current ones
+     */
+    public void newSearch() {
+        generation = (generation + 1) & 0xFF;
+    }
+
+    /**
+     * Look up a position
+     * @param key Zobrist key of the position
+     * @param depth the depth the caller needs the position searched to
+     * @return the stored value, or NaN if there is no entry searched at least that deep
+     */
+    public double probe(long key, int depth) {
+        probes.increment();
+        int index = index(key);
+        long data = slots.get(index + 1);
+        long check = slots.get(index);
+        if ((data & VALID) == 0 || (check ^ data) != key || depthOf(data) < depth) {
+            return Double.NaN;
+        }
+        hits.increment();
+        return Float.intBitsToFloat((int) data);
+    }
+
+    /**
+     * Store the value of a position
+     * @param key Zobrist key of the position
+     * @param depth how deep the position was searched
+     * @param value the value found
+     */
+    public void store(long key, int depth, double value) {
+        int index = index(key);
+        long old = slots.get(index + 1);
+        if ((old & VALID) != 0) {
+            boolean sameKey = (slots.get(index) ^ old) == key;
+            boolean stale = generationOf(old) != generation;
+            if (!sameKey && !stale && depthOf(old) > depth) {
+                return;
+            }
+            if (!sameKey) {
+                replacements.increment();
+            }
+        }
+        long data = (Float.floatToRawIntBits((float) value) & 0xFFFFFFFFL)
+                | (long) (depth & 0xFF) << 32
+                | (long) generation << 40
+                | VALID;
+        slots.set(index + 1, data);
+        slots.set(index, key ^ data);
+        stores.increment();
+    }
+
+    /**
+     * Empty the table and reset the statistics
+     */
+    public void clear() {
+        for (int i = 0; i < slots.length(); i++) {
+            slots.set(i, 0);
+        }
+        probes.reset();
+        hits.reset();
+        stores.reset();
+        replacements.reset();
+    }
+
+    /**
+     * @return number of lookups
+     */
+    public long getProbes() {
+        return probes.sum();
+    }
+
+    /**
+     * @return number of lookups that found a usable entry
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return number of entries written
+     */
+    public long getStores() {
+        return stores.sum();
+    }
+
+    /**
+     * @return number of entries that overwrote a different position
+     */
+    public long getReplacements() {
+        return replacements.sum();
+    }
+
+    /**
+     * @return fraction of lookups that hit, 0 to 1
+     */
+    public double getHitRate() {
+        long probed = probes.sum();
+        return probed == 0 ? 0 : (double) hits.sum() / probed;
+    }
+
+    /**
+     * @return the number of entries the table can hold
+     */
+    public int getCapacity() {
+        return mask + 1;
+    }
+
+    /**
+     * @param key Zobrist key
+     * @return index of the first long of the key's slot
+     */
+    private int index(long key) {
+        return ((int) (key ^ (key >>> 32)) & mask) << 1;
+    }
+
+    private static int depthOf(long data) {
+        return (int) (data >>> 32) & 0xFF;
+    }
+
+    private static int generationOf(long data) {
+        return (int) (data >>> 40) & 0xFF;
+    }
+}
@@ -0,0 +1,135 @@
+package uk.ac.soton.comp1206.component;
+
+import javafx.animation.AnimationTimer;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A FadeScheduler runs every block fade on one board from a single AnimationTimer, which only runs while a fade is in
+ * progress. Each frame it works out how far through its fade every block is from the time elapsed since the fade
+ * started, so fades take the same time at any frame rate, and repaints only the blocks that are fading.
+ *
+ * Fade records are kept in a pool and reused, so clearing lines does not allocate once the pool has grown.
+ */
+public class FadeScheduler {
+
+    /**
+     * How long a fade takes, in nanoseconds
+     */
+    public static final long FADE_DURATION = 1_100_000_000L;
+
+    /**
+     * A block fading and when it started
+     */
+    private static class Fade {
+        private GameBlock block;
+        private long start;
+    }
+
+    private final List<Fade> active = new ArrayList<>();
+    private final ArrayDeque<Fade> pool = new ArrayDeque<>();
+    private boolean running = false;
+
+    private final AnimationTimer timer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            tick(now);
+        }
+    };
+
+    /**
+     * Start fading a block, or start its fade again if it is already fading
+     * @param block block to fade
+     */
+    public void fade(GameBlock block) {
+        long now = System.nanoTime();
+        for (Fade fade : active) {
+            if (fade.block == block) {
+                fade.start = now;
+                return;
+            }
+        }
+        Fade fade = pool.isEmpty() ? new Fade() : pool.pop();
+        fade.block = block;
+        fade.start = now;
+        active.add(fade);
+        block.paintFade(1);
+
+        if (!running) {
+            running = true;
+            timer.start();
+        }
+    }
+
+    /**
+     * Stop a block's fade without painting it, for example because something new has been placed there
+     * @param block block to stop fading
+     */
+    public void cancel(GameBlock block) {
+        for (int i = 0; i < active.size(); i++) {
+            if (active.get(i).block == block) {
+                release(i);
+                return;
+            }
+        }
+    }
+
+    /**
+     * @param block a block
+     * @return true if the block is fading
+     */
+    public boolean isFading(GameBlock block) {
+        for (Fade fade : active) {
+            if (fade.block == block) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return number of blocks fading
+     */
+    public int getActiveCount() {
+        return active.size();
+    }
+
+    /**
+     * Advance every fade to the given time, finishing those that are complete
+     * @param now time of this frame in nanoseconds
+     */
+    private void tick(long now) {
+        for (int i = active.size() - 1; i >= 0; i--) {
+            Fade fade = active.get(i);
+            double opacity = 1 - (double) (now - fade.start) / FADE_DURATION;
+            if (opacity <= 0) {
+                GameBlock block = fade.block;
+                release(i);
+                block.paint();
+            } else {
+                fade.block.paintFade(Math.min(1, opacity));
+            }
+        }
+        if (active.isEmpty()) {
+            running = false;
+            timer.stop();
+        }
+    }
+
+    /**
+     * Remove a fade from the active list and return it to the pool
+     * @param index index into the active list
+     */
+    private void release(int index) {
+        //Order does not matter, so move the last fade into the gap
+        Fade fade = active.get(index);
+        Fade last = active.remove(active.size() - 1);
+        if (last != fade) {
+            active.set(index, last);
+        }
+        fade.block = null;
+        pool.push(fade);
+    }
+}
@@ -1,11 +1,11 @@
 package uk.ac.soton.comp1206.component;
 
-import javafx.animation.AnimationTimer;
 import javafx.beans.property.IntegerProperty;
 import javafx.beans.property.SimpleIntegerProperty;
 import javafx.beans.value.ObservableValue;
 import javafx.scene.canvas.Canvas;
-import javafx.scene.paint.*;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -17,6 +17,9 @@ import org.apache.logging.log4j.Logger;
  * Displays an empty square (when the value is 0) or a coloured square depending on value.
  *
  * The GameBlock value should be bound to a corresponding block in the Grid model.
+ *
+ * A block on a GameBoard drawn as a single canvas is not shown itself: it draws into its cell of the board's canvas
+ * instead, and leaves it to the board to repaint it when its value changes.
  */
 public class GameBlock extends Canvas {
 
@@ -48,8 +51,22 @@ public class GameBlock extends Canvas {
 
     private final double width;
     private final double height;
-    private static final double FADE_OUT_RATE = 0.015;
-    private double opacity = 1.0;
+
+    /**
+     * Where this block is drawn: its own canvas, or the board's shared canvas
+     */
+    private final GraphicsContext gc;
+
+    /**
+     * The position of this block within the canvas it is drawn on
+     */
+    private final double left;
+    private final double top;
+
+    /**
+     * Whether this block draws onto the board's shared canvas
+     */
+    private final boolean shared;
 
     /**
      * The column this block exists as in the grid
@@ -80,10 +97,14 @@ public class GameBlock extends Canvas {
         this.height = height;
         this.x = x;
         this.y = y;
+        this.shared = false;
+        this.left = 0;
+        this.top = 0;
 
         //A canvas needs a fixed width and height
         setWidth(width);
         setHeight(height);
+        this.gc = getGraphicsContext2D();
 
         //Do an initial paint
         paint();
@@ -93,117 +114,66 @@ public class GameBlock extends Canvas {
     }
 
     /**
-     * When the value of this block is updated,
-     * @param observable what was updated
-     * @param oldValue the old value
-     * @param newValue the new value
+     * Create a new Game Block which draws into its cell of a board's shared canvas rather than being a canvas itself
+     * @param gameBoard the board this block belongs to
+     * @param x the column the block exists in
+     * @param y the row the block exists in
+     * @param width the width of the cell
+     * @param height the height of the cell
+     * @param gc the board's canvas
      */
-    private void updateValue(ObservableValue<? extends Number> observable, Number oldValue, Number newValue) {
+    GameBlock(GameBoard gameBoard, int x, int y, double width, double height, GraphicsContext gc) {
+        this.gameBoard = gameBoard;
+        this.width = width;
+        this.height = height;
+        this.x = x;
+        this.y = y;
+        this.shared = true;
+        this.left = x * width;
+        this.top = y * height;
+        this.gc = gc;
+
+        //The board sets the value from its grid's changes and repaints it, so no listener is needed
         paint();
     }
 
     /**
-     * Handle painting of the block canvas
-     * paints empty if value of block is 0
-     * or if the block belongs to the pieceboard and its the block in the middle of the pieceboard, then paint an indicator on it
-     * otherwise paint the block with whatever its value is
+     * When the value of this block is updated,
+     * @param observable what was updated
+     * @param oldValue the old value
+     * @param newValue the new value
      */
-    public void paint() {
-        //If the block is empty, paint as empty
-        if(value.get() == 0) {
-            paintEmpty();
-        } else if (x == 1 && y == 1 && gameBoard instanceof PieceBoard) {
-            paintCircle(COLOURS[value.get()]);
-        }else {
-            //If the block is not empty, paint with the colour represented by the value
-            paintColor(COLOURS[value.get()]);
+    private void updateValue(ObservableValue<? extends Number> observable, Number oldValue, Number newValue) {
+        //Something placed where a line was cleared replaces the fade
+        if (newValue.intValue() != 0) {
+            gameBoard.getFadeScheduler().cancel(this);
         }
+        paint();
     }
 
     /**
-     * handles the painting of a block if the mouse hovers above it
-     * adds a transparent white on top so it looks like its highlighted
+     * Set the value of a block on a shared canvas, without painting it. The board paints every block changed by an
+     * update of its grid together.
+     * @param newValue the new value
      */
-    public void hoverPaint() {
-        if (!(gameBoard instanceof PieceBoard)) {
-            var gc = getGraphicsContext2D();
-
-            gc.setFill(Color.rgb(255, 255, 255, 0.5));
-            gc.fillRect(0,0, width, height);
-
-            gc.setStroke(Color.WHITE);
-            gc.strokeRect(0,0,width,height);
+    void setValue(int newValue) {
+        //Something placed where a line was cleared replaces the fade
+        if (newValue != 0) {
+            gameBoard.getFadeScheduler().cancel(this);
         }
+        value.set(newValue);
     }
 
     /**
-     * Paint this canvas empty
-     */
-    private void paintEmpty() {
-        var gc = getGraphicsContext2D();
-
-        //Clear
-        gc.clearRect(0,0,width,height);
-
-        //Fill
-        gc.setFill(Color.rgb(0, 0, 0, 0.5));
-        gc.fillRect(0,0, width, height);
-
-        //Border
-        gc.setStroke(Color.WHITE);
-        gc.strokeRect(0,0,width,height);
-    }
-
-    /**
-     * Paint this canvas with the given colour
-     * makes blocks look animated
-     * @param colour the colour to paint
-     */
-    private void paintColor(Paint colour) {
-        var gc = getGraphicsContext2D();
-
-        //Clear
-        gc.clearRect(0,0,width,height);
-
-        //Colour fill
-        //gc.setFill(colour);
-
-        //new 3D look
-        Stop[] stops = new Stop[]{new Stop(0, Color.WHITE), new Stop(1, (Color) colour)};
-        LinearGradient gradient = new LinearGradient(0, 0, 1, 1, true, CycleMethod.NO_CYCLE, stops);
-        gc.setFill(gradient);
-
-        gc.fillRect(0,0, width, height);
-
-        //Border
-        gc.setStroke(Color.BLACK);
-        gc.strokeRect(0,0,width,height);
-    }
-
-    /**
-     * paints a circle on top of the block
-     * @param colour the colour of the block to paint
+     * Handle painting of the block canvas
+     * paints empty if value of block is 0
+     * or if the block belongs to the pieceboard and its the block in the middle of the pieceboard, then paint an indicator on it
+     * otherwise paint the block with whatever its value is
      */
-    private void paintCircle(Paint colour) {
-        var gc = getGraphicsContext2D();
-
-        //Clear
-        gc.clearRect(0,0,width,height);
-        Stop[] stops = new Stop[]{new Stop(0, Color.WHITE), new Stop(1, (Color) colour)};
-        LinearGradient gradient = new LinearGradient(0, 0, 1, 1, true, CycleMethod.NO_CYCLE, stops);
-        gc.setFill(gradient);
-
-        //Colour fill
-        gc.fillRect(0,0, width, height);
-
-        gc.setFill(Color.rgb(255, 255, 255, 0.7));
-        double cellWidth = 10;
-        double cellHeight = 10;
-        double circleRadius = Math.min(cellWidth, cellHeight) * 0.7; // Adjust the radius as needed
-        double circleCenterX = getWidth() / 2.0;
-        double circleCenterY = getHeight() / 2.0;
-
-        gc.fillOval(circleCenterX - circleRadius, circleCenterY - circleRadius, circleRadius * 2, circleRadius * 2);
+    public void paint() {
+        PerformanceMonitor.blockPainted();
+        int variant = x == 1 && y == 1 && gameBoard instanceof PieceBoard ? TileAtlas.CENTRE : TileAtlas.NORMAL;
+        gameBoard.getAtlas().draw(gc, value.get(), variant, left, top, width, height);
     }
 
     /**
@@ -240,29 +210,24 @@ public class GameBlock extends Canvas {
 
     /**
      * makes the block fade out from a green to nothing
+     * the fade is run by the board's fade scheduler along with any others
      */
     public void fadeOut() {
-        var gc = getGraphicsContext2D();
-        AnimationTimer timer = new AnimationTimer() {
-            @Override
-            public void handle(long now) {
-                gc.clearRect(0,0,width,height);
-                // Decrease opacity gradually
-                opacity -= FADE_OUT_RATE;
-                if (opacity <= 0) {
-                    stop(); // Stop animation when opacity reaches 0
-                    paintEmpty();
-                }
+        gameBoard.getFadeScheduler().fade(this);
+    }
+
+    /**
+     * paints one frame of the fade out
+     * @param opacity how much green is left, 0 to 1
+     */
+    void paintFade(double opacity) {
+        PerformanceMonitor.blockPainted();
+        gc.clearRect(left, top, width, height);
 
-                // Update block color with new opacity
-                gc.setFill(Color.rgb(0, 255, 0, opacity));
-                gc.fillRect(0,0, width, height);
+        gc.setFill(Color.rgb(0, 255, 0, opacity));
+        gc.fillRect(left, top, width, height);
 
-                gc.setStroke(Color.WHITE);
-                gc.strokeRect(0,0,width,height);
-            }
-        };
-        timer.start();
+        gc.setStroke(Color.WHITE);
+        gc.strokeRect(left, top, width, height);
     }
-
 }
@@ -1,11 +1,18 @@
 package uk.ac.soton.comp1206.component;
 
+import javafx.scene.Group;
+import javafx.scene.Parent;
+import javafx.scene.canvas.Canvas;
 import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.GridPane;
+import javafx.scene.transform.Scale;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import uk.ac.soton.comp1206.event.BlockClickedListener;
+import uk.ac.soton.comp1206.event.BlockHoveredListener;
+import uk.ac.soton.comp1206.game.GamePiece;
 import uk.ac.soton.comp1206.game.Grid;
+import uk.ac.soton.comp1206.ui.GamePane;
 
 import java.util.Set;
 
@@ -18,6 +25,19 @@ import java.util.Set;
  *
  * The GameBoard is only a visual representation and should not contain game logic or model logic in it, which should
  * take place in the Grid.
+ *
+ * A GameBoard can instead be drawn as a single canvas, which keeps the scene graph to one node however large the board
+ * is. Its blocks then draw into their cell of the shared canvas, clicks and hovers are mapped to a block from the
+ * mouse position, and the board takes each set of cells its grid reports changed by an update and repaints them
+ * together, rather than listening to every cell. Blocks and click listeners behave the same in both modes.
+ *
+ * The block under the mouse is highlighted on a transparent overlay above the blocks, and a piece can be previewed on
+ * the same overlay, so moving the mouse never repaints the blocks themselves. If a hover listener is set, it decides
+ * what the overlay shows instead.
+ *
+ * Blocks are painted from a TileAtlas. A single canvas board follows the scale of the GamePane it is shown in, drawing
+ * its canvas and atlas at the resolution it appears on screen, rounded up to a step, so it stays sharp at any window
+ * size.
  */
 public class GameBoard extends GridPane {
 
@@ -58,6 +78,55 @@ public class GameBoard extends GridPane {
      */
     private BlockClickedListener blockClickedListener;
     private BlockClickedListener rightClickedListener;
+    private BlockHoveredListener blockHoveredListener;
+
+    /**
+     * Whether the board is drawn as a single canvas rather than one canvas per block
+     */
+    private final boolean singleCanvas;
+
+    /**
+     * The shared canvas, if the board is drawn as a single canvas
+     */
+    private Canvas canvas;
+
+    /**
+     * The block under the mouse, or null
+     */
+    private GameBlock hoveredBlock;
+
+    /**
+     * Shows the hover highlight or piece preview above the blocks
+     */
+    private GhostOverlay overlay;
+
+    /**
+     * The piece previewed on the overlay and where, to draw it again when the scale changes
+     */
+    private GamePiece ghostPiece;
+    private int ghostX;
+    private int ghostY;
+    private boolean ghostLegal;
+
+    /**
+     * Runs the fades of every block on this board
+     */
+    private final FadeScheduler fadeScheduler = new FadeScheduler();
+
+    /**
+     * The pre-drawn block images for the current block size and scale
+     */
+    private TileAtlas atlas;
+
+    /**
+     * Pixels per unit of the board's size on the shared canvas
+     */
+    private double renderScale = 1;
+
+    /**
+     * The GamePane whose scale the shared canvas follows, once found
+     */
+    private GamePane scaledBy;
 
     /**
      * Create a new GameBoard, based off a given grid, with a visual width and height.
@@ -66,11 +135,24 @@ public class GameBoard extends GridPane {
      * @param height the visual height
      */
     public GameBoard(Grid grid, double width, double height) {
+        this(grid, width, height, false);
+    }
+
+    /**
+     * Create a new GameBoard, based off a given grid, with a visual width and height, optionally drawn as a single
+     * canvas.
+     * @param grid linked grid
+     * @param width the visual width
+     * @param height the visual height
+     * @param singleCanvas true to draw the whole board on one canvas
+     */
+    public GameBoard(Grid grid, double width, double height, boolean singleCanvas) {
         this.cols = grid.getCols();
         this.rows = grid.getRows();
         this.width = width;
         this.height = height;
         this.grid = grid;
+        this.singleCanvas = singleCanvas;
 
         //Build the GameBoard
         build();
@@ -91,6 +173,7 @@ public class GameBoard extends GridPane {
         this.width = width;
         this.height = height;
         this.grid = new Grid(cols,rows);
+        this.singleCanvas = false;
 
         //Build the GameBoard
         build();
@@ -115,15 +198,204 @@ public class GameBoard extends GridPane {
         setMaxWidth(width);
         setMaxHeight(height);
 
-        setGridLinesVisible(true);
-
         blocks = new GameBlock[cols][rows];
+        atlas = TileAtlas.get(width / cols, height / rows, renderScale);
+
+        if (singleCanvas) {
+            buildCanvas();
+            return;
+        }
+
+        setGridLinesVisible(true);
 
         for(var y = 0; y < rows; y++) {
             for (var x = 0; x < cols; x++) {
                 createBlock(x,y);
             }
         }
+
+        overlay = new GhostOverlay(width, height, cols, rows);
+        add(overlay, 0, 0, cols, rows);
+    }
+
+    /**
+     * Build the GameBoard as a single canvas, with blocks that draw into their cell of it
+     */
+    private void buildCanvas() {
+        canvas = new Canvas(width, height);
+        overlay = new GhostOverlay(width, height, cols, rows);
+        //A group lays out using the canvas's scaled size, so the canvas can have more pixels than the board's size
+        add(new Group(canvas, overlay), 0, 0);
+
+        var blockWidth = width / cols;
+        var blockHeight = height / rows;
+        for (var y = 0; y < rows; y++) {
+            for (var x = 0; x < cols; x++) {
+                GameBlock block = new GameBlock(this, x, y, blockWidth, blockHeight, canvas.getGraphicsContext2D());
+                blocks[x][y] = block;
+                block.setValue(grid.get(x, y));
+                block.paint();
+            }
+        }
+        grid.setGridChangedListener(this::gridChanged);
+
+        canvas.setOnMouseClicked(e -> {
+            GameBlock block = blockAt(e.getX() / renderScale, e.getY() / renderScale);
+            if (block != null) {
+                blockClicked(e, block);
+            }
+        });
+        canvas.setOnMouseMoved(e -> hover(blockAt(e.getX() / renderScale, e.getY() / renderScale)));
+        canvas.setOnMouseExited(e -> hover(null));
+
+        sceneProperty().addListener((observable, oldScene, newScene) -> {
+            if (newScene != null) {
+                followScale();
+            }
+        });
+    }
+
+    /**
+     * Find the GamePane this board is shown in and draw at its scale from now on
+     */
+    private void followScale() {
+        Parent parent = getParent();
+        while (parent != null && !(parent instanceof GamePane)) {
+            parent = parent.getParent();
+        }
+        if (parent == null || parent == scaledBy) {
+            return;
+        }
+        scaledBy = (GamePane) parent;
+        scaledBy.scalarProperty().addListener((observable, oldScale, newScale) ->
+                setRenderScale(newScale.doubleValue()));
+        setRenderScale(scaledBy.scalarProperty().get());
+    }
+
+    /**
+     * Draw a single canvas board at a different resolution, rebuilding the canvas and atlas and repainting every block.
+     * The scale is rounded up to a step, so resizing the window only does this when it crosses one.
+     * @param scale pixels per unit of the board's size
+     */
+    public void setRenderScale(double scale) {
+        if (!singleCanvas || scale <= 0) {
+            return;
+        }
+        scale = GamePane.roundScale(scale);
+        if (scale == renderScale) {
+            return;
+        }
+        renderScale = scale;
+        canvas.setWidth(width * scale);
+        canvas.setHeight(height * scale);
+        canvas.getTransforms().setAll(new Scale(1 / scale, 1 / scale, 0, 0));
+        canvas.getGraphicsContext2D().setTransform(scale, 0, 0, scale, 0, 0);
+        atlas = TileAtlas.get(width / cols, height / rows, scale);
+
+        for (var y = 0; y < rows; y++) {
+            for (var x = 0; x < cols; x++) {
+                blocks[x][y].paint();
+            }
+        }
+        overlay.setRenderScale(scale);
+        redrawOverlay();
+    }
+
+    /**
+     * @return the scheduler running the fades of this board's blocks
+     */
+    public FadeScheduler getFadeScheduler() {
+        return fadeScheduler;
+    }
+
+    /**
+     * @return the pre-drawn block images to paint blocks with
+     */
+    TileAtlas getAtlas() {
+        return atlas;
+    }
+
+    /**
+     * Find the block under a point on the shared canvas
+     * @param px x position within the board
+     * @param py y position within the board
+     * @return the block, or null if the point is outside the board
+     */
+    private GameBlock blockAt(double px, double py) {
+        int x = (int) Math.floor(px * cols / width);
+        int y = (int) Math.floor(py * rows / height);
+        if (x < 0 || x >= cols || y < 0 || y >= rows) {
+            return null;
+        }
+        return blocks[x][y];
+    }
+
+    /**
+     * The mouse has moved onto another block, or off the board. Tells the hover listener if there is one, otherwise
+     * moves the highlight.
+     * @param block block now under the mouse, or null
+     */
+    private void hover(GameBlock block) {
+        if (block == hoveredBlock) {
+            return;
+        }
+        hoveredBlock = block;
+        if (blockHoveredListener != null) {
+            blockHoveredListener.blockHovered(block);
+        } else {
+            redrawOverlay();
+        }
+    }
+
+    /**
+     * Preview a piece on the overlay with its centre at a column and row, replacing the hover highlight
+     * @param piece the piece
+     * @param x column of the centre
+     * @param y row of the centre
+     * @param legal whether the piece can be placed there, which decides how it is drawn
+     */
+    public void showGhost(GamePiece piece, int x, int y, boolean legal) {
+        ghostPiece = piece;
+        ghostX = x;
+        ghostY = y;
+        ghostLegal = legal;
+        redrawOverlay();
+    }
+
+    /**
+     * Remove the piece preview from the overlay
+     */
+    public void clearGhost() {
+        ghostPiece = null;
+        redrawOverlay();
+    }
+
+    /**
+     * Draw the piece preview, or if there is none and nothing else decides, highlight the block under the mouse
+     */
+    private void redrawOverlay() {
+        if (ghostPiece != null) {
+            overlay.showPiece(ghostPiece, ghostX, ghostY, ghostLegal, atlas);
+        } else if (hoveredBlock != null && blockHoveredListener == null && !(this instanceof PieceBoard)) {
+            overlay.showBlock(hoveredBlock.getX(), hoveredBlock.getY());
+        } else {
+            overlay.clear();
+        }
+    }
+
+    /**
+     * Called by the grid of a single canvas board with every cell changed by one update, such as a placement and the
+     * lines it cleared. The changed blocks are repainted together.
+     * @param changedBlocks the cells whose value changed
+     */
+    private void gridChanged(Set<GameBlockCoordinate> changedBlocks) {
+        for (GameBlockCoordinate cell : changedBlocks) {
+            GameBlock block = blocks[cell.getX()][cell.getY()];
+            block.setValue(grid.get(cell.getX(), cell.getY()));
+            //A fading block is painted by the fade until it finishes
+            if (fadeScheduler.isFading(block)) continue;
+            block.paint();
+        }
     }
 
     /**
@@ -150,8 +422,12 @@ public class GameBoard extends GridPane {
         //Add a mouse click handler to the block to trigger GameBoard blockClicked method
         block.setOnMouseClicked((e) -> blockClicked(e, block));
 
-        block.setOnMouseEntered(event -> block.hoverPaint()); // Change color on mouse enter
-        block.setOnMouseExited(event -> block.paint());
+        block.setOnMouseEntered(event -> hover(block));
+        block.setOnMouseExited(event -> {
+            if (hoveredBlock == block) {
+                hover(null);
+            }
+        });
 
         return block;
     }
@@ -180,6 +456,16 @@ public class GameBoard extends GridPane {
         this.rightClickedListener = listener;
     }
 
+    /**
+     * Set the listener to handle the mouse moving onto another block or off the board. While one is set, the block
+     * under the mouse is not highlighted, so the listener can preview a piece instead.
+     * @param listener listener to add
+     */
+    public void setOnBlockHover(BlockHoveredListener listener) {
+        this.blockHoveredListener = listener;
+        redrawOverlay();
+    }
+
     /**
      * causes this blocks to fade out because player cleared them
      * @param blocksToFadeOut set of blocks to fade out
@@ -0,0 +1,135 @@
+package uk.ac.soton.comp1206.component;
+
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+import javafx.scene.transform.Scale;
+import uk.ac.soton.comp1206.game.GamePiece;
+
+/**
+ * A transparent canvas laid over a GameBoard which shows where a piece would go: its blocks in the piece's colour if
+ * it can be placed there, or in red if it cannot. Moving the preview only redraws this canvas, never the blocks
+ * underneath it.
+ */
+class GhostOverlay extends Canvas {
+
+    private static final Color BLOCKED = Color.rgb(255, 0, 0, 0.45);
+    private static final double GHOST_OPACITY = 0.55;
+
+    private final double width;
+    private final double height;
+    private final int cols;
+    private final int rows;
+
+    /**
+     * The area drawn on last, in board units, so only that has to be cleared: left, top, right, bottom
+     */
+    private double dirtyLeft;
+    private double dirtyTop;
+    private double dirtyRight;
+    private double dirtyBottom;
+
+    /**
+     * Create an overlay for a board
+     * @param width board width
+     * @param height board height
+     * @param cols number of columns
+     * @param rows number of rows
+     */
+    GhostOverlay(double width, double height, int cols, int rows) {
+        super(width, height);
+        this.width = width;
+        this.height = height;
+        this.cols = cols;
+        this.rows = rows;
+        setMouseTransparent(true);
+    }
+
+    /**
+     * Draw at a different resolution, like the board's shared canvas
+     * @param scale pixels per unit of the board's size
+     */
+    void setRenderScale(double scale) {
+        setWidth(width * scale);
+        setHeight(height * scale);
+        getTransforms().setAll(new Scale(1 / scale, 1 / scale, 0, 0));
+        getGraphicsContext2D().setTransform(scale, 0, 0, scale, 0, 0);
+        dirtyLeft = 0;
+        dirtyTop = 0;
+        dirtyRight = width;
+        dirtyBottom = height;
+    }
+
+    /**
+     * Show a piece's blocks with its centre at a column and row
+     * @param piece the piece
+     * @param x column of the centre
+     * @param y row of the centre
+     * @param legal whether the piece can be placed there
+     * @param atlas tiles to draw a placeable piece with
+     */
+    void showPiece(GamePiece piece, int x, int y, boolean legal, TileAtlas atlas) {
+        clear();
+        GraphicsContext gc = getGraphicsContext2D();
+        double blockWidth = width / cols;
+        double blockHeight = height / rows;
+        gc.setGlobalAlpha(legal ? GHOST_OPACITY : 1);
+        gc.setFill(BLOCKED);
+        for (int px = 0; px < 3; px++) {
+            for (int py = 0; py < 3; py++) {
+                int value = piece.getBlock(px, py);
+                int bx = x + px - 1;
+                int by = y + py - 1;
+                if (value == 0 || bx < 0 || bx >= cols || by < 0 || by >= rows) {
+                    continue;
+                }
+                if (legal) {
+                    atlas.draw(gc, value, TileAtlas.NORMAL, bx * blockWidth, by * blockHeight, blockWidth, blockHeight);
+                } else {
+                    gc.fillRect(bx * blockWidth, by * blockHeight, blockWidth, blockHeight);
+                }
+                markDrawn(bx * blockWidth, by * blockHeight, blockWidth, blockHeight);
+            }
+        }
+        gc.setGlobalAlpha(1);
+    }
+
+    /**
+     * Highlight a single block, as the mouse moves over it
+     * @param x column
+     * @param y row
+     */
+    void showBlock(int x, int y) {
+        clear();
+        GraphicsContext gc = getGraphicsContext2D();
+        double blockWidth = width / cols;
+        double blockHeight = height / rows;
+        gc.setFill(Color.color(1, 1, 1, 0.5));
+        gc.fillRect(x * blockWidth, y * blockHeight, blockWidth, blockHeight);
+        gc.setStroke(Color.WHITE);
+        gc.strokeRect(x * blockWidth, y * blockHeight, blockWidth, blockHeight);
+        markDrawn(x * blockWidth, y * blockHeight, blockWidth, blockHeight);
+    }
+
+    /**
+     * Remove whatever is shown
+     */
+    void clear() {
+        if (dirtyRight > dirtyLeft) {
+            //Strokes spill half a unit over the edge of a block
+            getGraphicsContext2D().clearRect(dirtyLeft - 1, dirtyTop - 1,
+                    dirtyRight - dirtyLeft + 2, dirtyBottom - dirtyTop + 2);
+        }
+        dirtyLeft = Double.MAX_VALUE;
+        dirtyTop = Double.MAX_VALUE;
+        dirtyRight = -Double.MAX_VALUE;
+        dirtyBottom = -Double.MAX_VALUE;
+    }
+
+    private void markDrawn(double left, double top, double w, double h) {
+        dirtyLeft = Math.min(dirtyLeft, left);
+        dirtyTop = Math.min(dirtyTop, top);
+        dirtyRight = Math.max(dirtyRight, left + w);
+        dirtyBottom = Math.max(dirtyBottom, top + h);
+    }
+}
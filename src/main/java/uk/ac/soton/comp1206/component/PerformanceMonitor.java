@@ -0,0 +1,224 @@
+package uk.ac.soton.comp1206.component;
+
+import javafx.animation.AnimationTimer;
+import javafx.beans.property.ReadOnlyStringProperty;
+import javafx.beans.property.ReadOnlyStringWrapper;
+import javafx.scene.Scene;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * A PerformanceMonitor measures how smoothly a scene is drawn: frames per second, the longest frame in the last
+ * second, how long the FX pulse took, how many blocks were painted per frame, and how long after the last move the
+ * board was repainted. Every second it updates a summary for an on-screen overlay and writes the same numbers to the
+ * performance log.
+ *
+ * Block paints and moves are recorded by GameBlock and ChallengeScene whether or not a monitor is running, as they
+ * only set a field. Everything else is only measured while a monitor is started.
+ *
+ * The pulse time is from the start of the pulse, when animations run, to the end of its CSS and layout pass. Drawing
+ * the scene happens after that on the render thread, which JavaFX does not report.
+ */
+public class PerformanceMonitor {
+
+    private static final Logger logger = LogManager.getLogger(PerformanceMonitor.class);
+
+    /**
+     * The rolling log the numbers are written to, configured in log4j2.xml
+     */
+    private static final Logger performanceLog = LogManager.getLogger("performance");
+
+    private static final long SECOND = 1_000_000_000L;
+
+    /**
+     * Block paints since the last frame
+     */
+    private static int paints;
+
+    /**
+     * When the last click was handled, or 0 once the board has been repainted after it
+     */
+    private static long clickTime;
+
+    /**
+     * Whether a block has been painted since the last click
+     */
+    private static boolean paintedSinceClick;
+
+    private final Scene scene;
+    private final Runnable pulseListener = this::pulseFinished;
+    private final ReadOnlyStringWrapper summary = new ReadOnlyStringWrapper("");
+
+    private boolean running = false;
+    private long pulseStart;
+    private long lastFrame;
+    private long secondStart;
+    private int frames;
+    private long worstFrame;
+    private long pulseTotal;
+    private long worstPulse;
+    private int paintTotal;
+    private int worstPaints;
+    private long clickLatency = -1;
+
+    private final AnimationTimer timer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            frameStarted(now);
+        }
+    };
+
+    /**
+     * Create a monitor for a scene
+     * @param scene the scene to measure
+     */
+    public PerformanceMonitor(Scene scene) {
+        this.scene = scene;
+    }
+
+    /**
+     * Called by a block each time it paints itself
+     */
+    static void blockPainted() {
+        paints++;
+        paintedSinceClick = true;
+    }
+
+    /**
+     * Called when a move is made, whether by clicking or from the keyboard, to time how long the board takes to be
+     * repainted
+     */
+    public static void clicked() {
+        clickTime = System.nanoTime();
+        paintedSinceClick = false;
+    }
+
+    /**
+     * Start measuring
+     */
+    public void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        pulseStart = 0;
+        lastFrame = 0;
+        secondStart = 0;
+        resetSecond();
+        scene.addPostLayoutPulseListener(pulseListener);
+        timer.start();
+        logger.info("Performance monitor started");
+    }
+
+    /**
+     * Stop measuring
+     */
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        timer.stop();
+        scene.removePostLayoutPulseListener(pulseListener);
+        logger.info("Performance monitor stopped");
+    }
+
+    /**
+     * Start measuring if stopped, otherwise stop
+     * @return true if now measuring
+     */
+    public boolean toggle() {
+        if (running) {
+            stop();
+        } else {
+            start();
+        }
+        return running;
+    }
+
+    /**
+     * @return whether the monitor is measuring
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * @return the numbers from the last second, one per line
+     */
+    public ReadOnlyStringProperty summaryProperty() {
+        return summary.getReadOnlyProperty();
+    }
+
+    /**
+     * Start of a pulse: count the frame, and report once a second has passed
+     * @param now time of the pulse in nanoseconds
+     */
+    private void frameStarted(long now) {
+        pulseStart = now;
+        if (lastFrame != 0) {
+            frames++;
+            worstFrame = Math.max(worstFrame, now - lastFrame);
+        } else {
+            secondStart = now;
+        }
+        lastFrame = now;
+
+        if (now - secondStart >= SECOND) {
+            report(now - secondStart);
+            secondStart = now;
+            resetSecond();
+        }
+    }
+
+    /**
+     * End of a pulse's layout: time the pulse, count the paints done for it, and time the repaint after a click
+     */
+    private void pulseFinished() {
+        //The listener can run once before the timer has seen a pulse
+        if (pulseStart == 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        long pulse = now - pulseStart;
+        pulseTotal += pulse;
+        worstPulse = Math.max(worstPulse, pulse);
+
+        paintTotal += paints;
+        worstPaints = Math.max(worstPaints, paints);
+        paints = 0;
+
+        if (clickTime != 0 && paintedSinceClick) {
+            clickLatency = now - clickTime;
+            clickTime = 0;
+        }
+    }
+
+    /**
+     * Publish and log the numbers for the last second
+     * @param elapsed length of the second in nanoseconds
+     */
+    private void report(long elapsed) {
+        double fps = frames * (double) SECOND / elapsed;
+        double meanPulse = frames == 0 ? 0 : pulseTotal / 1e6 / frames;
+        double meanPaints = frames == 0 ? 0 : (double) paintTotal / frames;
+        String latency = clickLatency < 0 ? "-" : String.format("%.1f ms", clickLatency / 1e6);
+
+        summary.set(String.format("FPS: %.0f%nWorst frame: %.1f ms%nPulse: %.2f ms (worst %.2f ms)%n"
+                        + "Paints/frame: %.1f (worst %d)%nClick to repaint: %s",
+                fps, worstFrame / 1e6, meanPulse, worstPulse / 1e6, meanPaints, worstPaints, latency));
+        performanceLog.info(String.format("fps=%.1f worstFrameMs=%.2f pulseMs=%.3f worstPulseMs=%.3f "
+                        + "paintsPerFrame=%.2f worstPaints=%d clickToRepaintMs=%s",
+                fps, worstFrame / 1e6, meanPulse, worstPulse / 1e6, meanPaints, worstPaints,
+                clickLatency < 0 ? "-" : String.format("%.2f", clickLatency / 1e6)));
+    }
+
+    private void resetSecond() {
+        frames = 0;
+        worstFrame = 0;
+        pulseTotal = 0;
+        worstPulse = 0;
+        paintTotal = 0;
+        worstPaints = 0;
+    }
+}
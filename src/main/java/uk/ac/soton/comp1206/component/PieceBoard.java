@@ -18,17 +18,30 @@ public class PieceBoard extends GameBoard{
         super(grid, width, height);
     }
 
+    /**
+     * Create a new PieceBoard, based off a given grid, with a visual width and height, optionally drawn as a single
+     * canvas.
+     * @param grid linked grid
+     * @param width the visual width
+     * @param height the visual height
+     * @param singleCanvas true to draw the whole board on one canvas
+     */
+    public PieceBoard(Grid grid, double width, double height, boolean singleCanvas) {
+        super(grid, width, height, singleCanvas);
+    }
+
     /**
      * @param currentPiece the piece to display on the pieceboard
      */
     public void displayPiece(GamePiece currentPiece) {
         logger.info("Piece displayed: " + currentPiece.toString());
-        int[][] placePiece = currentPiece.getBlocks();
 
-        for (int x = 0; x < 3; x++) {
-            for (int y = 0; y < 3; y++) {
-                grid.set(x, y, placePiece[x][y]);
+        grid.update(() -> {
+            for (int x = 0; x < 3; x++) {
+                for (int y = 0; y < 3; y++) {
+                    grid.set(x, y, currentPiece.getBlock(x, y));
+                }
             }
-        }
+        });
     }
 }
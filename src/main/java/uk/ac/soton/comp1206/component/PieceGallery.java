@@ -0,0 +1,117 @@
+package uk.ac.soton.comp1206.component;
+
+import javafx.beans.property.ReadOnlyDoubleProperty;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+import javafx.scene.image.WritableImage;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import uk.ac.soton.comp1206.game.GamePiece;
+import uk.ac.soton.comp1206.ui.GamePane;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A picture of every piece, laid out in a grid the way the instructions show them, each on a 3x3 board with the
+ * centre marked like a PieceBoard. It is drawn once from the GamePiece shapes by copying tiles out of a TileAtlas, and
+ * shared, rather than being made of a board of blocks per piece.
+ *
+ * The picture is drawn at the resolution it is shown at and kept for each scale it has been drawn at, so it stays
+ * sharp when the window is resized and changing back to an earlier size does not draw it again.
+ */
+public class PieceGallery {
+
+    private static final Logger logger = LogManager.getLogger(PieceGallery.class);
+
+    /**
+     * Pieces per row
+     */
+    public static final int COLUMNS = 5;
+
+    /**
+     * Size of each block
+     */
+    public static final double BLOCK_SIZE = 25;
+
+    /**
+     * Space between pieces
+     */
+    public static final double GAP = 10;
+
+    private static final int ROWS = (GamePiece.PIECES + COLUMNS - 1) / COLUMNS;
+
+    /**
+     * Width of the whole gallery
+     */
+    public static final double WIDTH = COLUMNS * 3 * BLOCK_SIZE + (COLUMNS - 1) * GAP;
+
+    /**
+     * Height of the whole gallery
+     */
+    public static final double HEIGHT = ROWS * 3 * BLOCK_SIZE + (ROWS - 1) * GAP;
+
+    /**
+     * How many scales to keep the picture at
+     */
+    private static final int CACHED_IMAGES = 4;
+
+    private static final Map<Double, Image> images = new LinkedHashMap<>(8, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Double, Image> eldest) {
+            return size() > CACHED_IMAGES;
+        }
+    };
+
+    /**
+     * Get the gallery drawn at a scale, drawing it the first time
+     * @param scale pixels per unit of the gallery's size
+     * @return the picture
+     */
+    public static synchronized Image get(double scale) {
+        double step = GamePane.roundScale(scale);
+        return images.computeIfAbsent(step, PieceGallery::draw);
+    }
+
+    /**
+     * Create a view of the gallery which is shown at WIDTH by HEIGHT and follows a GamePane's scale
+     * @param scale the scale the view is drawn at on screen
+     * @return the view
+     */
+    public static ImageView createView(ReadOnlyDoubleProperty scale) {
+        ImageView view = new ImageView(get(scale.get()));
+        view.setFitWidth(WIDTH);
+        view.setFitHeight(HEIGHT);
+        view.setSmooth(true);
+        scale.addListener((observable, oldScale, newScale) -> view.setImage(get(newScale.doubleValue())));
+        return view;
+    }
+
+    /**
+     * Draw the gallery
+     */
+    private static Image draw(double scale) {
+        long start = System.nanoTime();
+        TileAtlas atlas = TileAtlas.get(BLOCK_SIZE, BLOCK_SIZE, scale);
+        int tileWidth = atlas.getTileWidth();
+        int tileHeight = atlas.getTileHeight();
+        int gap = (int) Math.round(GAP * scale);
+        WritableImage image = new WritableImage(
+                COLUMNS * 3 * tileWidth + (COLUMNS - 1) * gap, ROWS * 3 * tileHeight + (ROWS - 1) * gap);
+
+        for (int piece = 0; piece < GamePiece.PIECES; piece++) {
+            int left = (piece % COLUMNS) * (3 * tileWidth + gap);
+            int top = (piece / COLUMNS) * (3 * tileHeight + gap);
+            GamePiece shape = GamePiece.createPiece(piece);
+            for (int x = 0; x < 3; x++) {
+                for (int y = 0; y < 3; y++) {
+                    int variant = x == 1 && y == 1 ? TileAtlas.CENTRE : TileAtlas.NORMAL;
+                    atlas.copy(image.getPixelWriter(), shape.getBlock(x, y), variant,
+                            left + x * tileWidth, top + y * tileHeight);
+                }
+            }
+        }
+        logger.info("Drew piece gallery at scale {} in {} ms", scale, (System.nanoTime() - start) / 1000000);
+        return image;
+    }
+}
@@ -0,0 +1,215 @@
+package uk.ac.soton.comp1206.component;
+
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.PixelWriter;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A TileAtlas holds every look a block can have, drawn once into a single image, so painting a block is one drawImage
+ * rather than building a gradient and filling and stroking a shape each time.
+ *
+ * There is one column per entry of GameBlock.COLOURS, and one row per variant: NORMAL, CENTRE (the indicator drawn in
+ * the middle of a PieceBoard). Colour 0 is the empty block.
+ *
+ * Tiles are drawn at a size in pixels, which can be larger than the block's size on screen when the game is scaled up,
+ * so they stay sharp. Atlases are shared between all blocks with the same tile size.
+ */
+public class TileAtlas {
+
+    private static final Logger logger = LogManager.getLogger(TileAtlas.class);
+
+    /**
+     * A block filled with its colour
+     */
+    public static final int NORMAL = 0;
+
+    /**
+     * A block with the indicator in the centre
+     */
+    public static final int CENTRE = 1;
+
+    private static final int VARIANTS = 2;
+
+    /**
+     * Radius of the centre indicator, in the same units as the block size
+     */
+    private static final double CIRCLE_RADIUS = 7;
+
+    /**
+     * How many atlases to keep, as resizing the window passes through many scales
+     */
+    private static final int CACHED_ATLASES = 8;
+
+    /**
+     * Atlases already built, keyed by tile width and height in pixels, least recently used first
+     */
+    private static final Map<Long, TileAtlas> atlases = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, TileAtlas> eldest) {
+            return size() > CACHED_ATLASES;
+        }
+    };
+
+    private final int tileWidth;
+    private final int tileHeight;
+    private final WritableImage image;
+
+    /**
+     * Get the atlas for blocks of the given size drawn at the given scale, building it the first time
+     * @param width block width
+     * @param height block height
+     * @param scale how many pixels each unit of the block's size covers
+     * @return atlas
+     */
+    public static synchronized TileAtlas get(double width, double height, double scale) {
+        int tileWidth = Math.max(1, (int) Math.round(width * scale));
+        int tileHeight = Math.max(1, (int) Math.round(height * scale));
+        return atlases.computeIfAbsent((long) tileWidth << 32 | tileHeight,
+                key -> new TileAtlas(tileWidth, tileHeight, tileWidth / width));
+    }
+
+    /**
+     * Build a new atlas
+     * @param tileWidth tile width in pixels
+     * @param tileHeight tile height in pixels
+     * @param scale pixels per unit of the block's size
+     */
+    private TileAtlas(int tileWidth, int tileHeight, double scale) {
+        long start = System.nanoTime();
+        this.tileWidth = tileWidth;
+        this.tileHeight = tileHeight;
+
+        int colours = GameBlock.COLOURS.length;
+        int[] pixels = new int[tileWidth * tileHeight];
+        image = new WritableImage(tileWidth * colours, tileHeight * VARIANTS);
+        for (int colour = 0; colour < colours; colour++) {
+            for (int variant = 0; variant < VARIANTS; variant++) {
+                drawTile(pixels, colour, variant, scale);
+                image.getPixelWriter().setPixels(colour * tileWidth, variant * tileHeight, tileWidth, tileHeight,
+                        PixelFormat.getIntArgbInstance(), pixels, 0, tileWidth);
+            }
+        }
+        logger.info("Built {} x {} tile atlas in {} ms", tileWidth, tileHeight, (System.nanoTime() - start) / 1000000);
+    }
+
+    /**
+     * Draw a tile into the given canvas
+     * @param gc where to draw
+     * @param colour index into GameBlock.COLOURS
+     * @param variant NORMAL or CENTRE
+     * @param x left of the block
+     * @param y top of the block
+     * @param width block width
+     * @param height block height
+     */
+    public void draw(GraphicsContext gc, int colour, int variant, double x, double y, double width, double height) {
+        gc.clearRect(x, y, width, height);
+        gc.drawImage(image, colour * tileWidth, variant * tileHeight, tileWidth, tileHeight, x, y, width, height);
+    }
+
+    /**
+     * Copy a tile's pixels into another image
+     * @param out where to write
+     * @param colour index into GameBlock.COLOURS
+     * @param variant NORMAL or CENTRE
+     * @param x left of the tile in the other image, in pixels
+     * @param y top of the tile in the other image, in pixels
+     */
+    public void copy(PixelWriter out, int colour, int variant, int x, int y) {
+        out.setPixels(x, y, tileWidth, tileHeight, image.getPixelReader(), colour * tileWidth, variant * tileHeight);
+    }
+
+    /**
+     * @return width of a tile in pixels
+     */
+    public int getTileWidth() {
+        return tileWidth;
+    }
+
+    /**
+     * @return height of a tile in pixels
+     */
+    public int getTileHeight() {
+        return tileHeight;
+    }
+
+    /**
+     * Work out every pixel of one tile, matching the shapes GameBlock used to draw: a white to colour diagonal gradient
+     * with a black border for a filled block, translucent black with a white border for an empty one, and a translucent
+     * white circle for the centre indicator.
+     */
+    private void drawTile(int[] pixels, int colour, int variant, double scale) {
+        Color base = GameBlock.COLOURS[colour];
+        boolean empty = colour == 0;
+        //Borders are 1 unit wide and centred on the edge, so half of them lands inside the tile
+        double border = 0.5 * scale;
+        double centreX = tileWidth / 2.0;
+        double centreY = tileHeight / 2.0;
+        double radius = CIRCLE_RADIUS * scale;
+        double[] rgba = new double[4];
+
+        for (int py = 0; py < tileHeight; py++) {
+            for (int px = 0; px < tileWidth; px++) {
+                if (empty) {
+                    rgba[0] = 0;
+                    rgba[1] = 0;
+                    rgba[2] = 0;
+                    rgba[3] = 0.5;
+                } else {
+                    double t = ((px + 0.5) / tileWidth + (py + 0.5) / tileHeight) / 2;
+                    rgba[0] = 1 + (base.getRed() - 1) * t;
+                    rgba[1] = 1 + (base.getGreen() - 1) * t;
+                    rgba[2] = 1 + (base.getBlue() - 1) * t;
+                    rgba[3] = 1;
+                }
+
+                double edge = edgeCoverage(px, py, border);
+                if (variant == CENTRE && !empty) {
+                    double distance = Math.hypot(px + 0.5 - centreX, py + 0.5 - centreY);
+                    over(rgba, 1, 1, 1, 0.7 * clamp(radius - distance + 0.5));
+                } else {
+                    over(rgba, empty ? 1 : 0, empty ? 1 : 0, empty ? 1 : 0, edge);
+                }
+
+                pixels[py * tileWidth + px] = (int) Math.round(rgba[3] * 255) << 24
+                        | (int) Math.round(rgba[0] * 255) << 16
+                        | (int) Math.round(rgba[1] * 255) << 8
+                        | (int) Math.round(rgba[2] * 255);
+            }
+        }
+    }
+
+    /**
+     * @return how much of a pixel is covered by a border of the given width around the tile, 0 to 1
+     */
+    private double edgeCoverage(int px, int py, double border) {
+        int fromEdge = Math.min(Math.min(px, tileWidth - 1 - px), Math.min(py, tileHeight - 1 - py));
+        return clamp(border - fromEdge);
+    }
+
+    /**
+     * Blend a colour over a pixel
+     * @param rgba pixel, not premultiplied, updated in place
+     */
+    private static void over(double[] rgba, double r, double g, double b, double alpha) {
+        double outAlpha = alpha + rgba[3] * (1 - alpha);
+        if (outAlpha <= 0) {
+            return;
+        }
+        rgba[0] = (r * alpha + rgba[0] * rgba[3] * (1 - alpha)) / outAlpha;
+        rgba[1] = (g * alpha + rgba[1] * rgba[3] * (1 - alpha)) / outAlpha;
+        rgba[2] = (b * alpha + rgba[2] * rgba[3] * (1 - alpha)) / outAlpha;
+        rgba[3] = outAlpha;
+    }
+
+    private static double clamp(double value) {
+        return Math.max(0, Math.min(1, value));
+    }
+}
@@ -0,0 +1,16 @@
+package uk.ac.soton.comp1206.event;
+
+import uk.ac.soton.comp1206.component.GameBlock;
+
+/**
+ * The Block Hovered listener is used to handle the mouse moving onto a different block in a GameBoard, or off the
+ * board. It passes the GameBlock now under the mouse, or null.
+ */
+public interface BlockHoveredListener {
+
+    /**
+     * Handle the mouse moving to a different block
+     * @param block the block now under the mouse, or null if the mouse has left the board
+     */
+    public void blockHovered(GameBlock block);
+}
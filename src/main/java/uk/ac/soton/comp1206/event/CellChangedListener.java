@@ -0,0 +1,16 @@
+package uk.ac.soton.comp1206.event;
+
+/**
+ * The Cell Changed listener is used by a BitBoard to report each cell whose value has changed, so that a view of the
+ * board can be kept in sync without the model depending on it.
+ */
+public interface CellChangedListener {
+
+    /**
+     * Handle a cell changing value
+     * @param x column
+     * @param y row
+     * @param value the new value
+     */
+    public void cellChanged(int x, int y, int value);
+}
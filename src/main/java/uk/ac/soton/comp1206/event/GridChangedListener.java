@@ -0,0 +1,18 @@
+package uk.ac.soton.comp1206.event;
+
+import uk.ac.soton.comp1206.component.GameBlockCoordinate;
+
+import java.util.Set;
+
+/**
+ * The Grid Changed listener is used by a Grid to report every cell changed by one update, once the update is
+ * complete, so a view can redraw them together rather than one at a time.
+ */
+public interface GridChangedListener {
+
+    /**
+     * Handle a set of cells changing value
+     * @param changedBlocks the cells whose value is different from before the update
+     */
+    public void gridChanged(Set<GameBlockCoordinate> changedBlocks);
+}
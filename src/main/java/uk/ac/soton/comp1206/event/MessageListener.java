@@ -0,0 +1,17 @@
+package uk.ac.soton.comp1206.event;
+
+import uk.ac.soton.comp1206.network.Message;
+
+/**
+ * The Message Listener is used for listening to one command from the server, given already decoded by the
+ * Communicator.
+ * @param <T> type of message
+ */
+public interface MessageListener<T extends Message> {
+
+    /**
+     * Handle a decoded message received by the Communicator
+     * @param message the message that was received
+     */
+    public void receiveMessage(T message);
+}
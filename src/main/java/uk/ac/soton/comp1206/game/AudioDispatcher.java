@@ -0,0 +1,165 @@
+package uk.ac.soton.comp1206.game;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The AudioDispatcher plays sound effects on a thread of its own, so whatever asks for a sound, such as a click
+ * handler on the FX thread, only adds it to a queue and never waits on the audio engine.
+ *
+ * Requests for the same sound within one frame (1/60 s) of each other are merged into one, so a burst of moves plays
+ * each sound once rather than stacking copies of it. Each sound has a priority: when several are waiting, the highest
+ * are played first, so they get the voices if the SoundBank is near its limit. A sound can also duck the music, which
+ * is lowered while it plays and brought back up when it ends.
+ */
+public class AudioDispatcher {
+
+    private static final Logger logger = LogManager.getLogger(AudioDispatcher.class);
+
+    /**
+     * Priority of sounds which can be missed, such as rotating
+     */
+    public static final int LOW = 0;
+
+    /**
+     * Priority of most sounds
+     */
+    public static final int NORMAL = 1;
+
+    /**
+     * Priority of sounds which must be heard, such as clearing lines
+     */
+    public static final int HIGH = 2;
+
+    /**
+     * Requests for the same sound closer together than this are merged
+     */
+    private static final long FRAME = 1_000_000_000L / 60;
+
+    /**
+     * A sound waiting to be played
+     */
+    private static class Request {
+        private final String file;
+        private final int priority;
+        private final boolean duck;
+        private final long time;
+
+        private Request(String file, int priority, boolean duck, long time) {
+            this.file = file;
+            this.priority = priority;
+            this.duck = duck;
+            this.time = time;
+        }
+    }
+
+    private static final LinkedBlockingQueue<Request> queue = new LinkedBlockingQueue<>();
+
+    /**
+     * When each sound was last played, to merge requests within a frame of it
+     */
+    private static final Map<String, Long> lastPlayed = new HashMap<>();
+
+    /**
+     * When the music should come back up, or 0 if it is not ducked
+     */
+    private static long duckedUntil;
+
+    private static volatile long merged;
+
+    static {
+        Thread thread = new Thread(AudioDispatcher::run, "Audio dispatcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Ask for a sound to be played at normal priority
+     * @param file name of the sound under /sounds
+     */
+    public static void play(String file) {
+        play(file, NORMAL, false);
+    }
+
+    /**
+     * Ask for a sound to be played
+     * @param file name of the sound under /sounds
+     * @param priority LOW, NORMAL or HIGH
+     * @param duck true to lower the music while the sound plays
+     */
+    public static void play(String file, int priority, boolean duck) {
+        queue.add(new Request(file, priority, duck, System.nanoTime()));
+    }
+
+    /**
+     * @return number of requests merged into another request for the same sound
+     */
+    public static long getMergedCount() {
+        return merged;
+    }
+
+    /**
+     * Take requests off the queue as they arrive and play them, bringing the music back up when a ducking sound ends
+     */
+    private static void run() {
+        List<Request> batch = new ArrayList<>();
+        while (true) {
+            try {
+                Request first;
+                if (duckedUntil == 0) {
+                    first = queue.take();
+                } else {
+                    first = queue.poll(Math.max(0, duckedUntil - System.nanoTime()), TimeUnit.NANOSECONDS);
+                }
+                if (duckedUntil != 0 && System.nanoTime() >= duckedUntil) {
+                    duckedUntil = 0;
+                    Multimedia.setMusicDucked(false);
+                }
+                if (first == null) {
+                    continue;
+                }
+
+                //Everything else which arrived meanwhile is played with it
+                batch.add(first);
+                queue.drainTo(batch);
+                batch.sort((a, b) -> Integer.compare(b.priority, a.priority));
+                for (Request request : batch) {
+                    dispatch(request);
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                logger.error("Could not play sound: " + e.getMessage());
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private static void dispatch(Request request) {
+        Long last = lastPlayed.get(request.file);
+        if (last != null && Math.abs(request.time - last) < FRAME) {
+            merged++;
+            return;
+        }
+        lastPlayed.put(request.file, request.time);
+
+        if (!SoundBank.play(request.file, request.time)) {
+            return;
+        }
+        if (request.duck) {
+            long until = System.nanoTime() + SoundBank.getLength(request.file);
+            if (duckedUntil == 0) {
+                Multimedia.setMusicDucked(true);
+            }
+            duckedUntil = Math.max(duckedUntil, until);
+        }
+    }
+}
@@ -0,0 +1,370 @@
+package uk.ac.soton.comp1206.game;
+
+import uk.ac.soton.comp1206.event.CellChangedListener;
+
+import java.util.Arrays;
+
+/**
+ * The BitBoard is the primitive model behind a Grid. It holds no JavaFX state, so it can be used directly by anything
+ * that needs to test or place pieces quickly.
+ *
+ * Occupancy is held as one long word per row, with bit (x + 1) set when column x is filled. Bit 0 and bit (cols + 1)
+ * are permanent walls, and an extra fully occupied row is kept above and below the board. This means a piece hanging
+ * off any edge collides with the padding, so legality is a single mask AND per piece row and never needs a bounds check.
+ *
+ * The colour value of each cell is held separately in a packed byte array, indexed by row then column. The number of
+ * filled cells in every row and column is counted as cells change, so a full line can be spotted in constant time.
+ *
+ * A Zobrist hash of which cells are filled is also kept up to date as cells change, for use as a search key.
+ *
+ * An optional listener is told about every cell that changes, which is how a Grid keeps its properties in sync.
+ */
+public class BitBoard {
+
+    /**
+     * The widest board supported, leaving room for the two wall bits in each row word
+     */
+    public static final int MAX_COLS = Long.SIZE - 2;
+
+    /**
+     * The number of columns in this board
+     */
+    private final int cols;
+
+    /**
+     * The number of rows in this board
+     */
+    private final int rows;
+
+    /**
+     * Occupancy words, one per row plus a padding row above and below
+     */
+    private final long[] occupancy;
+
+    /**
+     * The colour value of each cell, packed row by row
+     */
+    private final byte[] values;
+
+    /**
+     * The number of filled cells in each row and in each column
+     */
+    private final int[] rowCounts;
+    private final int[] colCounts;
+
+    /**
+     * The wall bits every real row starts with
+     */
+    private final long walls;
+
+    /**
+     * Zobrist hash of the filled cells
+     */
+    private long hash = 0;
+
+    /**
+     * Zobrist key of each cell, packed row by row like the values
+     */
+    private final long[] keys;
+
+    /**
+     * Incremented every time the board changes, so anything derived from the board can tell when it is stale
+     */
+    private int version = 0;
+
+    /**
+     * The listener to call when a cell changes, if any
+     */
+    private CellChangedListener cellChangedListener;
+
+    /**
+     * Create a new empty BitBoard with the specified number of columns and rows
+     * @param cols number of columns
+     * @param rows number of rows
+     */
+    public BitBoard(int cols, int rows) {
+        if (cols < 1 || cols > MAX_COLS || rows < 1) {
+            throw new IllegalArgumentException("Unsupported board size: " + cols + " x " + rows);
+        }
+        this.cols = cols;
+        this.rows = rows;
+        this.walls = 1L | (1L << (cols + 1));
+        this.occupancy = new long[rows + 2];
+        this.values = new byte[cols * rows];
+        this.rowCounts = new int[rows];
+        this.colCounts = new int[cols];
+        this.keys = new long[cols * rows];
+        for (int y = 0; y < rows; y++) {
+            for (int x = 0; x < cols; x++) {
+                keys[y * cols + x] = Zobrist.cell(x, y);
+            }
+        }
+        clear();
+    }
+
+    /**
+     * Make this board an exact copy of another board of the same size. The listener is not copied or called, which
+     * makes this suitable for scratch boards used in a search.
+     * @param other board to copy
+     */
+    public void copyFrom(BitBoard other) {
+        if (other.cols != cols || other.rows != rows) {
+            throw new IllegalArgumentException("Cannot copy a " + other.cols + " x " + other.rows + " board");
+        }
+        System.arraycopy(other.occupancy, 0, occupancy, 0, occupancy.length);
+        System.arraycopy(other.values, 0, values, 0, values.length);
+        System.arraycopy(other.rowCounts, 0, rowCounts, 0, rowCounts.length);
+        System.arraycopy(other.colCounts, 0, colCounts, 0, colCounts.length);
+        hash = other.hash;
+        version++;
+    }
+
+    /**
+     * Set the listener to handle an event when a cell changes
+     * @param listener listener to add
+     */
+    public void setCellChangedListener(CellChangedListener listener) {
+        this.cellChangedListener = listener;
+    }
+
+    /**
+     * Empty every cell on the board
+     */
+    public void clear() {
+        occupancy[0] = -1L;
+        occupancy[rows + 1] = -1L;
+        for (int y = 1; y <= rows; y++) {
+            occupancy[y] = walls;
+        }
+        Arrays.fill(values, (byte) 0);
+        Arrays.fill(rowCounts, 0);
+        Arrays.fill(colCounts, 0);
+        hash = 0;
+        version++;
+        if (cellChangedListener != null) {
+            for (int y = 0; y < rows; y++) {
+                for (int x = 0; x < cols; x++) {
+                    cellChangedListener.cellChanged(x, y, 0);
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the number of columns in this board
+     * @return number of columns
+     */
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * Get the number of rows in this board
+     * @return number of rows
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Check whether the given x and y index is on the board
+     * @param x column
+     * @param y row
+     * @return true if the cell exists
+     */
+    public boolean contains(int x, int y) {
+        return x >= 0 && x < cols && y >= 0 && y < rows;
+    }
+
+    /**
+     * Get the value at the given x and y index
+     * @param x column
+     * @param y row
+     * @return the value, or -1 if there is no such cell
+     */
+    public int get(int x, int y) {
+        if (!contains(x, y)) {
+            return -1;
+        }
+        return values[y * cols + x];
+    }
+
+    /**
+     * Update the value at the given x and y index, keeping the occupancy bits in step
+     * @param x column
+     * @param y row
+     * @param value the new value, 0 for empty
+     * @throws IndexOutOfBoundsException if x, y is not on the board, before anything is changed
+     */
+    public void set(int x, int y, int value) {
+        if (!contains(x, y)) {
+            throw new IndexOutOfBoundsException("Cell " + x + "," + y + " is outside the " + cols + "x" + rows
+                    + " board");
+        }
+        int index = y * cols + x;
+        boolean wasFilled = values[index] != 0;
+        version++;
+        values[index] = (byte) value;
+        if (value == 0) {
+            occupancy[y + 1] &= ~(1L << (x + 1));
+            if (wasFilled) {
+                rowCounts[y]--;
+                colCounts[x]--;
+                hash ^= keys[index];
+            }
+        } else {
+            occupancy[y + 1] |= 1L << (x + 1);
+            if (!wasFilled) {
+                rowCounts[y]++;
+                colCounts[x]++;
+                hash ^= keys[index];
+            }
+        }
+        if (cellChangedListener != null) {
+            cellChangedListener.cellChanged(x, y, value);
+        }
+    }
+
+    /**
+     * Get the filled cells of a row, with bit x set when column x is filled
+     * @param y row
+     * @return row occupancy without the wall bits
+     */
+    public long getRowBits(int y) {
+        return (occupancy[y + 1] & ~walls) >>> 1;
+    }
+
+    /**
+     * Get the Zobrist hash of which cells are filled
+     * @return hash
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     * Get the version of the board, which changes whenever any cell does
+     * @return version number
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Get the legal anchors of a piece along one row. Each piece row is tested against the whole board row at once by
+     * shifting the occupancy word, so no cell is looked at individually.
+     * @param y row
+     * @param piece the piece to place
+     * @return mask with bit x set when canPlayPiece(x, y, piece) would succeed
+     */
+    public long getLegalAnchors(int y, GamePiece piece) {
+        long blocked = 0;
+        for (int j = 0; j < 3; j++) {
+            long mask = piece.getRowMask(j);
+            long word = occupancy[y + j];
+            for (int i = 0; i < 3; i++) {
+                if ((mask & (1L << i)) != 0) {
+                    blocked |= word >>> i;
+                }
+            }
+        }
+        return ~blocked & getFullRow();
+    }
+
+    /**
+     * Get the number of filled cells in a row
+     * @param y row
+     * @return filled cell count
+     */
+    public int getRowCount(int y) {
+        return rowCounts[y];
+    }
+
+    /**
+     * Get the number of filled cells in a column
+     * @param x column
+     * @return filled cell count
+     */
+    public int getColCount(int x) {
+        return colCounts[x];
+    }
+
+    /**
+     * @param y row
+     * @return true if every cell in the row is filled
+     */
+    public boolean isRowFull(int y) {
+        return rowCounts[y] == cols;
+    }
+
+    /**
+     * @param x column
+     * @return true if every cell in the column is filled
+     */
+    public boolean isColFull(int x) {
+        return colCounts[x] == rows;
+    }
+
+    /**
+     * Get a raw occupancy word including the wall bits, with bit (x + 1) set when column x is filled. Rows -1 and
+     * rows are the fully occupied padding rows.
+     * @param y row, from -1 to rows
+     * @return occupancy word
+     */
+    public long getOccupancyWord(int y) {
+        return occupancy[y + 1];
+    }
+
+    /**
+     * Get a mask with a bit set for every column, the value of a full row from getRowBits
+     * @return full row mask
+     */
+    public long getFullRow() {
+        return (1L << cols) - 1;
+    }
+
+    /**
+     * Check whether a piece can be placed with its centre at the given x and y. Off-board cells count as filled.
+     * @param x column
+     * @param y row
+     * @param piece the piece to place
+     * @return true if every block of the piece lands on an empty cell
+     */
+    public boolean canPlayPiece(int x, int y, GamePiece piece) {
+        if (!contains(x, y)) {
+            return false;
+        }
+        //Piece row j covers board row y + j - 1, which is occupancy word y + j
+        return (occupancy[y] & (piece.getRowMask(0) << x)) == 0
+                && (occupancy[y + 1] & (piece.getRowMask(1) << x)) == 0
+                && (occupancy[y + 2] & (piece.getRowMask(2) << x)) == 0;
+    }
+
+    /**
+     * Place a piece with its centre at the given x and y. The placement must already be known to be legal.
+     * @param x column
+     * @param y row
+     * @param piece the piece to place
+     */
+    public void playPiece(int x, int y, GamePiece piece) {
+        byte value = (byte) piece.getValue();
+        version++;
+        for (int j = 0; j < 3; j++) {
+            long mask = piece.getRowMask(j);
+            if (mask == 0) continue;
+            occupancy[y + j] |= mask << x;
+            int base = (y + j - 1) * cols + x - 1;
+            for (int i = 0; i < 3; i++) {
+                if ((mask & (1L << i)) != 0) {
+                    values[base + i] = value;
+                    rowCounts[y + j - 1]++;
+                    colCounts[x - 1 + i]++;
+                    hash ^= keys[base + i];
+                    if (cellChangedListener != null) {
+                        cellChangedListener.cellChanged(x - 1 + i, y + j - 1, value);
+                    }
+                }
+            }
+        }
+    }
+}
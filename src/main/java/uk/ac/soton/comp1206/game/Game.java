@@ -8,6 +8,7 @@ import uk.ac.soton.comp1206.component.GameBlock;
 import uk.ac.soton.comp1206.component.GameBlockCoordinate;
 import uk.ac.soton.comp1206.event.LineClearedListener;
 import uk.ac.soton.comp1206.event.NextPieceListener;
+import uk.ac.soton.comp1206.replay.ReplayRecorder;
 
 import java.util.HashSet;
 import java.util.Random;
@@ -22,21 +23,21 @@ public class Game {
     private NextPieceListener nextPieceListener;
     private LineClearedListener lineClearedListener;
     /**
-     * used to create random integer values
+     * the headless engine holding the rules and state of this game
      */
-    private Random rand = new Random();
+    private final GameEngine engine;
     /**
-     * current piece is a random piece
+     * seed of the random pieces, so the game can be played again
      */
-    private GamePiece currentPiece = spawnPiece();
+    private final long seed;
     /**
-     * following piece is a random piece
+     * records the player's inputs if set
      */
-    private GamePiece followingPiece = spawnPiece();
+    private ReplayRecorder recorder;
     /**
      * lives initialised to 3
      */
-    private SimpleIntegerProperty lives = new SimpleIntegerProperty(3);
+    private SimpleIntegerProperty lives = new SimpleIntegerProperty(GameEngine.STARTING_LIVES);
     /**
      * level initialised to 0
      */
@@ -70,11 +71,26 @@ public class Game {
      * @param rows number of rows
      */
     public Game(int cols, int rows) {
+        this(cols, rows, new Random().nextLong());
+    }
+
+    /**
+     * Create a new game with the specified rows and columns whose pieces come from the given seed, so that the same
+     * seed and inputs always play out the same way
+     * @param cols number of columns
+     * @param rows number of rows
+     * @param seed seed of the random pieces
+     */
+    public Game(int cols, int rows, long seed) {
         this.cols = cols;
         this.rows = rows;
+        this.seed = seed;
 
         //Create a new grid model to represent the game state
         this.grid = new Grid(cols,rows);
+
+        //The engine plays directly on the board behind the grid, which keeps the grid properties in sync
+        this.engine = new GameEngine(grid.getBoard(), new RepeatableRandom(seed));
     }
 
     /**
@@ -104,13 +120,25 @@ public class Game {
         int x = gameBlock.getX();
         int y = gameBlock.getY();
 
-        if (grid.playPiece(x, y, currentPiece)) {
-            nextPiece();
+        if (recorder != null) {
+            recorder.click(x, y);
+        }
+        //The placement and any lines it clears reach the grid's properties as one update
+        boolean placed;
+        grid.beginUpdate();
+        try {
+            placed = engine.place(x, y);
+        } finally {
+            grid.endUpdate();
         }
-        //grid.playPiece(x, y, currentPiece);
-        int s = afterPiece();
-        score.set(score.get()+s);
-        setLevel();
+        if (!placed) {
+            Multimedia.playSound("fail.wav", AudioDispatcher.HIGH, false);
+            return;
+        }
+        Multimedia.playSound("place.wav");
+        afterPiece();
+        updateProperties();
+        fireNextPiece();
     }
 
     /**
@@ -121,6 +149,36 @@ public class Game {
         return grid;
     }
 
+    /**
+     * Get the headless engine this game wraps
+     * @return game engine
+     */
+    public GameEngine getEngine() {
+        return engine;
+    }
+
+    /**
+     * @return seed of the random pieces
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Record every input made from now on. Set before the game starts to record a complete game.
+     * @param recorder recorder to send inputs to, or null to stop recording
+     */
+    public void setRecorder(ReplayRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    /**
+     * @return the recorder inputs are sent to, or null if the game is not being recorded
+     */
+    public ReplayRecorder getRecorder() {
+        return recorder;
+    }
+
     /**
      * Get the number of columns in this game
      * @return number of columns
@@ -138,63 +196,47 @@ public class Game {
     }
 
     /**
-     * clears lines
-     * @return score depending on how many blocks and lines the player cleared
+     * tells the listener which blocks the last placement cleared and plays the clear sound
+     * the engine has already cleared them from the grid
      */
-    public int afterPiece() {
-        HashSet<GameBlockCoordinate> set = new HashSet<>();
-        // find all complete rows
-        int counter = 0;
-        for (int i = 0; i < getRows(); i++) {
-            boolean complete = true;
-            for (int j = 0; j < getCols(); j++) {
-                if (grid.get(i, j) == 0) {
-                    complete = false;
-                }
-            }
-            if (complete) { // add all to set to zero
-                counter ++;
-                for (int j = 0; j < getCols(); j++)
-                    set.add(new GameBlockCoordinate(i, j));
-            }
+    private void afterPiece() {
+        int clearedRows = engine.getClearedRowCount();
+        int clearedCols = engine.getClearedColCount();
+        if (clearedRows + clearedCols == 0) {
+            return;
         }
-        // find all complete columns
-        for (int j = 0; j < getRows(); j++) {
-            boolean complete = true;
-            for (int i = 0; i < getCols(); i++) {
-                if (grid.get(i, j) == 0) {
-                    complete = false;
-                }
-            }
-            if (complete) { // add all to set to zero
-                counter ++;
-                for (int i = 0; i < getCols(); i++)
-                    set.add(new GameBlockCoordinate(i, j));
-            }
+        HashSet<GameBlockCoordinate> set = new HashSet<>();
+        for (int i = 0; i < clearedRows; i++) {
+            for (int x = 0; x < getCols(); x++)
+                set.add(new GameBlockCoordinate(x, engine.getClearedRow(i)));
         }
-        lineClearedListener.onLineCleared(set);
-        // zero all complete
-        for (GameBlockCoordinate g: set) {
-            grid.set(g.getX(), g.getY(), 0);
+        for (int i = 0; i < clearedCols; i++) {
+            for (int y = 0; y < getRows(); y++)
+                set.add(new GameBlockCoordinate(engine.getClearedCol(i), y));
         }
-        // if counter >= 1 then increase mulitplier by one otherwise put multiplier to 1 again
-        if (counter >= 1) {
-            increaseMulitplier();
-            Multimedia.playSound("clear.wav");
-        } else {
-            resetMulitplier();
+        if (lineClearedListener != null) {
+            lineClearedListener.onLineCleared(set);
         }
+        Multimedia.playSound("clear.wav", AudioDispatcher.HIGH, true);
+    }
 
-        return calcScore(counter, set.size());
+    /**
+     * copies the engine state into the properties the UI is bound to
+     */
+    private void updateProperties() {
+        score.set(engine.getScore());
+        lives.set(engine.getLives());
+        level.set(engine.getLevel());
+        multiplier.set(engine.getMultiplier());
     }
 
     /**
-     * creates a random piece
-     * @return piece
+     * tells the listener about the current and following pieces
      */
-    public GamePiece spawnPiece() {
-        GamePiece piece = GamePiece.createPiece(rand.nextInt(15));
-        return piece;
+    private void fireNextPiece() {
+        if (nextPieceListener != null) {
+            nextPieceListener.nextPiece(engine.getCurrentPiece(), engine.getFollowingPiece());
+        }
     }
 
     /**
@@ -202,10 +244,46 @@ public class Game {
      * following piece is updated to a random piece
      */
     public void nextPiece() {
-        currentPiece = followingPiece;
-        followingPiece = spawnPiece();
-        nextPieceListener.nextPiece(currentPiece, followingPiece);
+        engine.nextPiece();
+        fireNextPiece();
+    }
 
+    /**
+     * Handle the timer running out: a life is lost, the piece is discarded and the multiplier is reset
+     */
+    public void timerExpired() {
+        logger.info("Timer expired");
+        if (recorder != null) {
+            recorder.timerExpired();
+        }
+        engine.timerExpired();
+        updateProperties();
+        fireNextPiece();
+    }
+
+    /**
+     * Check whether the current or following piece can be placed anywhere in any rotation
+     * @return false if the player is stuck until the timer runs out
+     */
+    public boolean hasLegalMove() {
+        return engine.hasLegalMove();
+    }
+
+    /**
+     * Check whether the current piece can be placed with its centre at the given column and row
+     * @param x column
+     * @param y row
+     * @return true if the piece fits
+     */
+    public boolean canPlayCurrentPiece(int x, int y) {
+        return engine.canPlace(x, y);
+    }
+
+    /**
+     * @return true once all lives have been lost
+     */
+    public boolean isGameOver() {
+        return engine.isGameOver();
     }
 
     /**
@@ -220,6 +298,7 @@ public class Game {
      * @param newLivesNum used to set the number of lives
      */
     public void setLives(int newLivesNum){
+        engine.setLives(newLivesNum);
         lives.set(newLivesNum);
     }
 
@@ -235,13 +314,6 @@ public class Game {
     public SimpleIntegerProperty getLevel() {
         return level;
     }
-    /**
-     * sets levels
-     * levels depends on the score, for every 1000 increase in score, the level increases by one
-     */
-    public void setLevel() {
-        level.set(score.get()/1000);
-    }
 
     /**
      * @return multiplier
@@ -250,29 +322,14 @@ public class Game {
         return multiplier;
     }
 
-    /**
-     * increases multiplier by one
-     */
-    public void increaseMulitplier() {
-        multiplier.set(multiplier.get() + 1);
-    }
     /**
      * resets multiplier to one
      */
     public void resetMulitplier() {
+        engine.resetMultiplier();
         multiplier.setValue(1);
     }
 
-    /**
-     * calculates score
-     * @param numLines that were cleared
-     * @param numBlocks in a line
-     * @return calculated score
-     */
-    public int calcScore(int numLines, int numBlocks) {
-        return numLines * numBlocks * 10 * getMultiplier().get();
-    }
-
     /**
      * @param listener set to this listener
      */
@@ -291,9 +348,21 @@ public class Game {
      * plays rotate sound
      */
     public void rotateCurrentPiece() {
+        rotateCurrentPiece(1);
+    }
+
+    /**
+     * rotates piece clockwise the given number of times, or anticlockwise if negative
+     * plays rotate sound
+     * @param rotations number of rotations
+     */
+    public void rotateCurrentPiece(int rotations) {
         logger.info("Piece rotated");
-        currentPiece.rotate();
-        Multimedia.playSound("rotate.wav");
+        if (recorder != null) {
+            recorder.rotate(rotations);
+        }
+        engine.rotateCurrentPiece(rotations);
+        Multimedia.playSound("rotate.wav", AudioDispatcher.LOW, false);
     }
     /**
      * swaps pieces of both pieceboards
@@ -301,30 +370,31 @@ public class Game {
      */
     public void swapCurrentPiece() {
         logger.info("Piece swapped");
-        GamePiece temp = currentPiece;
-        currentPiece = followingPiece;
-        followingPiece = temp;
-        Multimedia.playSound("rotate.wav");
+        if (recorder != null) {
+            recorder.swap();
+        }
+        engine.swapCurrentPiece();
+        Multimedia.playSound("rotate.wav", AudioDispatcher.LOW, false);
     }
 
     /**
      * @return currentPiece
      */
     public GamePiece getCurrentPiece() {
-        return currentPiece;
+        return engine.getCurrentPiece();
     }
 
     /**
      * @return followingPiece
      */
     public GamePiece getFollowingPiece() {
-        return followingPiece;
+        return engine.getFollowingPiece();
     }
 
     /**
      * @return calculated time to run out depending on the level
      */
     public int getTimerDelay() {
-        return (int) Math.max(2.5, 12 - 0.500 * level.get());
+        return engine.getTimerDelay();
     }
 }
@@ -0,0 +1,346 @@
+package uk.ac.soton.comp1206.game;
+
+import java.util.Random;
+
+/**
+ * The GameEngine holds the rules and state of a TetrECS game with no dependency on JavaFX or Multimedia. Pieces are
+ * placed by coordinate, and the engine takes care of clearing lines, scoring, levels and lives.
+ *
+ * The Game class wraps an engine to drive the UI, while simulations and bots can use one directly without starting
+ * the FX toolkit.
+ */
+public class GameEngine {
+
+    /**
+     * The number of lives a new game starts with
+     */
+    public static final int STARTING_LIVES = 3;
+
+    /**
+     * The board the game is played on
+     */
+    private final BitBoard board;
+
+    /**
+     * used to create random pieces
+     */
+    private final Random random;
+
+    /**
+     * The legal placements of every piece on the board, cached until the board changes
+     */
+    private final PlacementMap placements;
+
+    private GamePiece currentPiece;
+    private GamePiece followingPiece;
+
+    private int score = 0;
+    private int lives = STARTING_LIVES;
+    private int level = 0;
+    private int multiplier = 1;
+
+    /**
+     * The rows and columns cleared by the last placement, reused between moves
+     */
+    private final LineClear lineClear;
+
+    /**
+     * Create a new engine playing on its own board
+     * @param cols number of columns
+     * @param rows number of rows
+     * @param random source of random pieces
+     */
+    public GameEngine(int cols, int rows, Random random) {
+        this(new BitBoard(cols, rows), random);
+    }
+
+    /**
+     * Create a new engine playing on the given board, for example the board behind a Grid
+     * @param board board to play on
+     * @param random source of random pieces
+     */
+    public GameEngine(BitBoard board, Random random) {
+        this.board = board;
+        this.random = random;
+        this.placements = new PlacementMap(board);
+        this.lineClear = new LineClear(board.getCols(), board.getRows());
+        this.currentPiece = spawnPiece();
+        this.followingPiece = spawnPiece();
+    }
+
+    /**
+     * creates a random piece
+     * @return piece
+     */
+    public GamePiece spawnPiece() {
+        return GamePiece.createPiece(random.nextInt(GamePiece.PIECES));
+    }
+
+    /**
+     * updates current piece
+     * following piece is updated to a random piece
+     */
+    public void nextPiece() {
+        currentPiece = followingPiece;
+        followingPiece = spawnPiece();
+    }
+
+    /**
+     * Place the current piece with its centre at the given column and row. If it fits, lines are cleared, the score is
+     * updated and the next piece is dealt.
+     * @param x column
+     * @param y row
+     * @return true if the piece was placed
+     */
+    public boolean place(int x, int y) {
+        if (!placements.canPlay(x, y, currentPiece)) {
+            return false;
+        }
+        board.playPiece(x, y, currentPiece);
+        afterPiece(x, y, currentPiece);
+        nextPiece();
+        return true;
+    }
+
+    /**
+     * Check whether the current piece can be placed with its centre at the given column and row
+     * @param x column
+     * @param y row
+     * @return true if the piece fits
+     */
+    public boolean canPlace(int x, int y) {
+        return placements.canPlay(x, y, currentPiece);
+    }
+
+    /**
+     * Check whether there is any move left, trying the current piece in every rotation and then the following piece
+     * in every rotation, as the player could swap to it
+     * @return true if some legal placement exists
+     */
+    public boolean hasLegalMove() {
+        return placements.hasMoveInAnyRotation(currentPiece) || placements.hasMoveInAnyRotation(followingPiece);
+    }
+
+    /**
+     * @return the cached legal placements for this game's board
+     */
+    public PlacementMap getPlacements() {
+        return placements;
+    }
+
+    /**
+     * Clear any full rows and columns, then update the multiplier, score and level
+     * @param x column the piece was placed at
+     * @param y row the piece was placed at
+     * @param piece the piece that was placed
+     */
+    private void afterPiece(int x, int y, GamePiece piece) {
+        int lines = lineClear.find(board, x, y, piece);
+        lineClear.clear(board);
+
+        if (lines >= 1) {
+            multiplier++;
+        } else {
+            multiplier = 1;
+        }
+        score += calcScore(lines, lineClear.getBlockCount());
+        level = score / 1000;
+    }
+
+    /**
+     * calculates score
+     * @param numLines that were cleared
+     * @param numBlocks in a line
+     * @return calculated score
+     */
+    public int calcScore(int numLines, int numBlocks) {
+        return calcScore(numLines, numBlocks, multiplier);
+    }
+
+    /**
+     * calculates score for the given multiplier
+     * @param numLines that were cleared
+     * @param numBlocks in a line
+     * @param multiplier multiplier to apply
+     * @return calculated score
+     */
+    public static int calcScore(int numLines, int numBlocks, int multiplier) {
+        return numLines * numBlocks * 10 * multiplier;
+    }
+
+    /**
+     * rotates the current piece clockwise the given number of times
+     * @param rotations number of rotations, negative to rotate anticlockwise
+     */
+    public void rotateCurrentPiece(int rotations) {
+        currentPiece = currentPiece.rotate(rotations);
+    }
+
+    /**
+     * swaps the current and following pieces
+     */
+    public void swapCurrentPiece() {
+        GamePiece temp = currentPiece;
+        currentPiece = followingPiece;
+        followingPiece = temp;
+    }
+
+    /**
+     * Handle the timer running out before a piece was placed. A life is lost, the piece is discarded and the multiplier
+     * is reset.
+     */
+    public void timerExpired() {
+        lives--;
+        nextPiece();
+        multiplier = 1;
+    }
+
+    /**
+     * @return true once all lives have been lost
+     */
+    public boolean isGameOver() {
+        return lives <= 0;
+    }
+
+    /**
+     * @return calculated time in seconds for the timer to run out depending on the level
+     */
+    public int getTimerDelay() {
+        return (int) Math.max(2.5, 12 - 0.500 * level);
+    }
+
+    /**
+     * @return Zobrist hash of the board together with the current and following pieces
+     */
+    public long getHash() {
+        return Zobrist.hash(board, currentPiece, followingPiece);
+    }
+
+    /**
+     * Put the engine into a saved state, for example from a replay snapshot. The board is not changed, so it should
+     * already hold the saved cells.
+     * @param score score
+     * @param lives lives
+     * @param level level
+     * @param multiplier multiplier
+     * @param currentPiece current piece
+     * @param followingPiece following piece
+     */
+    public void restore(int score, int lives, int level, int multiplier, GamePiece currentPiece,
+                        GamePiece followingPiece) {
+        this.score = score;
+        this.lives = lives;
+        this.level = level;
+        this.multiplier = multiplier;
+        this.currentPiece = currentPiece;
+        this.followingPiece = followingPiece;
+    }
+
+    /**
+     * @return the source of random pieces
+     */
+    public Random getRandom() {
+        return random;
+    }
+
+    /**
+     * @return the board this game is played on
+     */
+    public BitBoard getBoard() {
+        return board;
+    }
+
+    /**
+     * @return currentPiece
+     */
+    public GamePiece getCurrentPiece() {
+        return currentPiece;
+    }
+
+    /**
+     * @return followingPiece
+     */
+    public GamePiece getFollowingPiece() {
+        return followingPiece;
+    }
+
+    /**
+     * @return score
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * @return lives
+     */
+    public int getLives() {
+        return lives;
+    }
+
+    /**
+     * sets lives
+     * @param lives the new number of lives
+     */
+    public void setLives(int lives) {
+        this.lives = lives;
+    }
+
+    /**
+     * @return level
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * @return multiplier
+     */
+    public int getMultiplier() {
+        return multiplier;
+    }
+
+    /**
+     * resets multiplier to one
+     */
+    public void resetMultiplier() {
+        multiplier = 1;
+    }
+
+    /**
+     * @return number of rows cleared by the last placement
+     */
+    public int getClearedRowCount() {
+        return lineClear.getRowCount();
+    }
+
+    /**
+     * @param index index into the rows cleared by the last placement
+     * @return the row number
+     */
+    public int getClearedRow(int index) {
+        return lineClear.getRow(index);
+    }
+
+    /**
+     * @return number of columns cleared by the last placement
+     */
+    public int getClearedColCount() {
+        return lineClear.getColCount();
+    }
+
+    /**
+     * @param index index into the columns cleared by the last placement
+     * @return the column number
+     */
+    public int getClearedCol(int index) {
+        return lineClear.getCol(index);
+    }
+
+    /**
+     * @return number of distinct blocks cleared by the last placement
+     */
+    public int getClearedBlockCount() {
+        return lineClear.getBlockCount();
+    }
+}
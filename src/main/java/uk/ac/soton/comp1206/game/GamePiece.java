@@ -5,6 +5,10 @@ package uk.ac.soton.comp1206.game;
  *
  * The GamePiece class also contains a factory for producing a GamePiece of a particular shape, as specified by it's
  * number.
+ *
+ * GamePieces are immutable flyweights. Every piece in each of its 4 rotations is built once when the class is loaded,
+ * along with its masks and bounding box, and the factory and rotate methods only ever hand out these shared instances.
+ * A piece is therefore fully described by its type and rotation, and rotating or spawning pieces allocates nothing.
  */
 public class GamePiece {
 
@@ -13,10 +17,62 @@ public class GamePiece {
      */
     public static final int PIECES = 15;
 
+    /**
+     * The number of distinct rotations of every piece
+     */
+    public static final int ROTATIONS = 4;
+
+    /**
+     * Every piece in every rotation, indexed by piece number then rotation
+     */
+    private static final GamePiece[][] SHAPES = new GamePiece[PIECES][ROTATIONS];
+
+    static {
+        for (int piece = 0; piece < PIECES; piece++) {
+            SHAPES[piece][0] = build(piece);
+            for (int rotation = 1; rotation < ROTATIONS; rotation++) {
+                SHAPES[piece][rotation] = SHAPES[piece][rotation - 1].rotated();
+            }
+        }
+    }
+
+    /**
+     * The piece number of this piece
+     */
+    private final int type;
+
+    /**
+     * How many times this piece has been rotated clockwise from its starting shape
+     */
+    private final int rotation;
+
     /**
      * The 2D grid representation of the shape of this piece
      */
-    private int[][] blocks;
+    private final int[][] blocks;
+
+    /**
+     * One bit mask per row of the piece, with bit i set when column i of that row is filled
+     */
+    private final long[] rowMasks = new long[3];
+
+    /**
+     * Mask of the whole 3x3 shape, with bit (y * 3 + x) set when that block is filled
+     */
+    private final int mask;
+
+    /**
+     * The number of filled blocks in this piece
+     */
+    private final int blockCount;
+
+    /**
+     * The bounding box of the filled blocks, in the piece's own 3x3 coordinates
+     */
+    private final int minX;
+    private final int maxX;
+    private final int minY;
+    private final int maxY;
 
     /**
      * The value of this piece
@@ -29,100 +85,112 @@ public class GamePiece {
     private final String name;
 
     /**
-     * Create a new GamePiece of the specified piece number
+     * Get the GamePiece of the specified piece number
      * @param piece piece number
-     * @return the created GamePiece
+     * @return the shared GamePiece
      */
     public static GamePiece createPiece(int piece) {
+        if (piece < 0 || piece >= PIECES) {
+            throw new IndexOutOfBoundsException("No such piece: " + piece);
+        }
+        return SHAPES[piece][0];
+    }
+
+    /**
+     * Build the starting shape of the specified piece number
+     * @param piece piece number
+     * @return the created GamePiece
+     */
+    private static GamePiece build(int piece) {
         switch (piece) { // column first and then row
             //Line
             case 0 -> {
                 int[][] blocks = {{0, 0, 0}, {1, 1, 1}, {0, 0, 0}};
-                return new GamePiece("Line", blocks, 1);
+                return new GamePiece(piece, 0, "Line", blocks, 1);
             }
 
             //C
             case 1 -> {
                 int[][] blocks = {{0, 0, 0}, {1, 1, 1}, {1, 0, 1}};
-                return new GamePiece("C", blocks, 2);
+                return new GamePiece(piece, 0, "C", blocks, 2);
             }
 
             //Plus
             case 2 -> {
                 int[][] blocks = {{0, 1, 0}, {1, 1, 1}, {0, 1, 0}};
-                return new GamePiece("Plus", blocks, 3);
+                return new GamePiece(piece, 0, "Plus", blocks, 3);
             }
 
             //Dot
             case 3 -> {
                 int[][] blocks = {{0, 0, 0}, {0, 1, 0}, {0, 0, 0}};
-                return new GamePiece("Dot", blocks, 4);
+                return new GamePiece(piece, 0, "Dot", blocks, 4);
             }
 
             //Square
             case 4 -> {
                 int[][] blocks = {{1, 1, 0}, {1, 1, 0}, {0, 0, 0}};
-                return new GamePiece("Square", blocks, 5);
+                return new GamePiece(piece, 0, "Square", blocks, 5);
             }
 
             //L
             case 5 -> {
                 int[][] blocks = {{0, 0, 0}, {1, 1, 1}, {0, 0, 1}};
-                return new GamePiece("L", blocks, 6);
+                return new GamePiece(piece, 0, "L", blocks, 6);
             }
 
             //J
             case 6 -> {
                 int[][] blocks = {{0, 0, 1}, {1, 1, 1}, {0, 0, 0}};
-                return new GamePiece("J", blocks, 7);
+                return new GamePiece(piece, 0, "J", blocks, 7);
             }
 
             //S
             case 7 -> {
                 int[][] blocks = {{0, 0, 0}, {0, 1, 1}, {1, 1, 0}};
-                return new GamePiece("S", blocks, 8);
+                return new GamePiece(piece, 0, "S", blocks, 8);
             }
 
             //Z
             case 8 -> {
                 int[][] blocks = {{1, 1, 0}, {0, 1, 1}, {0, 0, 0}};
-                return new GamePiece("Z", blocks, 9);
+                return new GamePiece(piece, 0, "Z", blocks, 9);
             }
 
             //T
             case 9 -> {
                 int[][] blocks = {{1, 0, 0}, {1, 1, 0}, {1, 0, 0}};
-                return new GamePiece("T", blocks, 10);
+                return new GamePiece(piece, 0, "T", blocks, 10);
             }
 
             //X
             case 10 -> {
                 int[][] blocks = {{1, 0, 1}, {0, 1, 0}, {1, 0, 1}};
-                return new GamePiece("X", blocks, 11);
+                return new GamePiece(piece, 0, "X", blocks, 11);
             }
 
             //Corner
             case 11 -> {
                 int[][] blocks = {{0, 0, 0}, {1, 1, 0}, {1, 0, 0}};
-                return new GamePiece("Corner", blocks, 12);
+                return new GamePiece(piece, 0, "Corner", blocks, 12);
             }
 
             //Inverse Corner
             case 12 -> {
                 int[][] blocks = {{1, 0, 0}, {1, 1, 0}, {0, 0, 0}};
-                return new GamePiece("Inverse Corner", blocks, 13);
+                return new GamePiece(piece, 0, "Inverse Corner", blocks, 13);
             }
 
             //Diagonal
             case 13 -> {
                 int[][] blocks = {{1, 0, 0}, {0, 1, 0}, {0, 0, 1}};
-                return new GamePiece("Diagonal", blocks, 14);
+                return new GamePiece(piece, 0, "Diagonal", blocks, 14);
             }
 
             //Double
             case 14 -> {
                 int[][] blocks = {{0, 1, 0}, {0, 1, 0}, {0, 0, 0}};
-                return new GamePiece("Double", blocks, 15);
+                return new GamePiece(piece, 0, "Double", blocks, 15);
             }
         }
 
@@ -131,37 +199,63 @@ public class GamePiece {
     }
 
     /**
-     * Create a new GamePiece of the specified piece number and rotation
+     * Get the GamePiece of the specified piece number and rotation
      * @param piece piece number
      * @param rotation number of times to rotate
-     * @return the created GamePiece
+     * @return the shared GamePiece
      */
     public static GamePiece createPiece(int piece, int rotation) {
-        var newPiece = createPiece(piece);
-
-        newPiece.rotate(rotation);
-        return newPiece;
+        return createPiece(piece).rotate(rotation);
     }
 
     /**
-     * Create a new GamePiece with the given name, block makeup and value. Should not be called directly, only via the
-     * factory.
+     * Create a new GamePiece with the given name, block makeup and value. Should not be called directly, only when
+     * the shapes are built.
+     * @param type piece number
+     * @param rotation number of clockwise rotations from the starting shape
      * @param name name of the piece
      * @param blocks block makeup of the piece
      * @param value the value of this piece
      */
-    private GamePiece(String name, int[][] blocks, int value) {
+    private GamePiece(int type, int rotation, String name, int[][] blocks, int value) {
+        this.type = type;
+        this.rotation = rotation;
         this.name = name;
         this.blocks = blocks;
         this.value = value;
 
         //Use the shape of the block to create a grid with either 0 (empty) or the value of this shape for each block.
+        int mask = 0;
+        int count = 0;
+        int minX = 3, maxX = -1, minY = 3, maxY = -1;
         for(int x = 0; x < blocks.length; x++) {
             for (int y = 0; y < blocks[x].length; y++) {
                 if(blocks[x][y] == 0) continue;
                 blocks[x][y] = value;
+                rowMasks[y] |= 1L << x;
+                mask |= 1 << (y * 3 + x);
+                count++;
+                minX = Math.min(minX, x);
+                maxX = Math.max(maxX, x);
+                minY = Math.min(minY, y);
+                maxY = Math.max(maxY, y);
             }
         }
+        this.mask = mask;
+        this.blockCount = count;
+        this.minX = minX;
+        this.maxX = maxX;
+        this.minY = minY;
+        this.maxY = maxY;
+    }
+
+    /**
+     * Get the bit mask of one row of this piece, used by the BitBoard to test and place it
+     * @param row row of the piece, 0 to 2
+     * @return mask with bit i set when column i of the row is filled
+     */
+    public long getRowMask(int row) {
+        return rowMasks[row];
     }
 
     /**
@@ -173,27 +267,110 @@ public class GamePiece {
     }
 
     /**
-     * Get the block makeup of this piece
-     * @return 2D grid of the blocks representing the piece shape
+     * Get the piece number of this piece
+     * @return piece number
      */
-    public int[][] getBlocks() {
-        return blocks;
+    public int getType() {
+        return type;
     }
 
     /**
-     * Rotate this piece the given number of rotations
-     * @param rotations number of rotations
+     * Get how many times this piece has been rotated clockwise from its starting shape
+     * @return rotation, 0 to 3
      */
-    public void rotate(int rotations) {
-        for(int rotated = 0; rotated < rotations; rotated ++) {
-            rotate();
+    public int getRotation() {
+        return rotation;
+    }
+
+    /**
+     * Get a copy of the block makeup of this piece. The shape itself is shared between every user of this piece, so
+     * getBlock reads it without copying.
+     * @return 2D grid of the blocks representing the piece shape, indexed [x][y]
+     */
+    public int[][] getBlocks() {
+        int[][] copy = new int[blocks.length][];
+        for (int x = 0; x < blocks.length; x++) {
+            copy[x] = blocks[x].clone();
         }
+        return copy;
+    }
+
+    /**
+     * Get one block of this piece's shape
+     * @param x column of the piece, 0 to 2
+     * @param y row of the piece, 0 to 2
+     * @return the value of this piece if the block is filled, otherwise 0
+     */
+    public int getBlock(int x, int y) {
+        return (mask >> (y * 3 + x) & 1) != 0 ? value : 0;
+    }
+
+    /**
+     * Get the mask of the whole 3x3 shape
+     * @return mask with bit (y * 3 + x) set when that block is filled
+     */
+    public int getMask() {
+        return mask;
+    }
+
+    /**
+     * Get the number of filled blocks in this piece
+     * @return block count
+     */
+    public int getBlockCount() {
+        return blockCount;
+    }
+
+    /**
+     * @return the leftmost filled column of the piece, 0 to 2
+     */
+    public int getMinX() {
+        return minX;
+    }
+
+    /**
+     * @return the rightmost filled column of the piece, 0 to 2
+     */
+    public int getMaxX() {
+        return maxX;
+    }
+
+    /**
+     * @return the topmost filled row of the piece, 0 to 2
+     */
+    public int getMinY() {
+        return minY;
+    }
+
+    /**
+     * @return the bottom filled row of the piece, 0 to 2
+     */
+    public int getMaxY() {
+        return maxY;
     }
 
     /**
-     * Rotate this piece exactly once by rotating it's 3x3 grid
+     * Get this piece rotated clockwise the given number of rotations
+     * @param rotations number of rotations, negative to rotate anticlockwise
+     * @return the shared rotated piece
      */
-    public void rotate() {
+    public GamePiece rotate(int rotations) {
+        return SHAPES[type][(rotation + rotations) & (ROTATIONS - 1)];
+    }
+
+    /**
+     * Get this piece rotated clockwise exactly once
+     * @return the shared rotated piece
+     */
+    public GamePiece rotate() {
+        return rotate(1);
+    }
+
+    /**
+     * Build the next rotation of this piece by rotating it's 3x3 grid. Only used when the shapes are built.
+     * @return a new GamePiece with the rotated shape
+     */
+    private GamePiece rotated() {
         int[][] rotated = new int[blocks.length][blocks[0].length];
         rotated[2][0] = blocks[0][0];
         rotated[1][0] = blocks[0][1];
@@ -207,7 +384,7 @@ public class GamePiece {
         rotated[1][2] = blocks[2][1];
         rotated[0][2] = blocks[2][2];
 
-        blocks = rotated;
+        return new GamePiece(type, rotation + 1, name, rotated, value);
     }
 
 
@@ -218,7 +395,4 @@ public class GamePiece {
     public String toString() {
         return this.name;
     }
-
-
-
 }
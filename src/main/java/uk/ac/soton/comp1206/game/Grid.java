@@ -3,15 +3,22 @@ package uk.ac.soton.comp1206.game;
 import javafx.beans.property.IntegerProperty;
 import javafx.beans.property.SimpleIntegerProperty;
 import uk.ac.soton.comp1206.component.GameBlockCoordinate;
+import uk.ac.soton.comp1206.event.GridChangedListener;
 
 import java.util.HashSet;
+import java.util.Set;
 
 /**
  * The Grid is a model which holds the state of a game board. It is made up of a set of Integer values arranged in a 2D
  * arrow, with rows and columns.
  *
- * Each value inside the Grid is an IntegerProperty can be bound to enable modification and display of the contents of
- * the grid.
+ * The state itself is held in a BitBoard, which is the source of truth for placement and line checks. Each value is
+ * also mirrored into an IntegerProperty which can be bound to enable display of the contents of the grid. The
+ * properties are a view only and are kept in sync by listening to every change made to the board.
+ *
+ * Changes made between beginUpdate and endUpdate are held back and published together: each changed property is set
+ * once to its final value, then the listener is told every cell that changed, so a placement and the lines it clears
+ * are redrawn in one pass rather than one cell at a time.
  *
  * The Grid contains functions related to modifying the model, for example, placing a piece inside the grid.
  *
@@ -30,10 +37,36 @@ public class Grid {
     private final int rows;
 
     /**
-     * The grid is a 2D arrow with rows and columns of SimpleIntegerProperties.
+     * The primitive model holding the state of the grid
+     */
+    private final BitBoard board;
+
+    /**
+     * The grid is a 2D arrow with rows and columns of SimpleIntegerProperties, mirroring the board for display.
      */
     private final SimpleIntegerProperty[][] grid;
 
+    /**
+     * How many updates are open, changes are published when the last one ends
+     */
+    private int updateDepth = 0;
+
+    /**
+     * Whether each cell, indexed by y * cols + x, has changed since the update began
+     */
+    private final boolean[] dirty;
+
+    /**
+     * The cells that have changed since the update began, in the order they first changed
+     */
+    private final int[] dirtyCells;
+    private int dirtyCount = 0;
+
+    /**
+     * The listener to call with the cells changed by each update
+     */
+    private GridChangedListener gridChangedListener;
+
     /**
      * Create a new Grid with the specified number of columns and rows and initialise them
      * @param cols number of columns
@@ -43,6 +76,9 @@ public class Grid {
         this.cols = cols;
         this.rows = rows;
 
+        //Create the model the grid is backed by
+        board = new BitBoard(cols, rows);
+
         //Create the grid itself
         grid = new SimpleIntegerProperty[cols][rows];
 
@@ -52,6 +88,95 @@ public class Grid {
                 grid[x][y] = new SimpleIntegerProperty(0);
             }
         }
+
+        dirty = new boolean[cols * rows];
+        dirtyCells = new int[cols * rows];
+
+        //Mirror every change made to the board into the properties
+        board.setCellChangedListener(this::cellChanged);
+    }
+
+    /**
+     * Start an update. Changes are not published until every update that has begun has ended.
+     */
+    public void beginUpdate() {
+        updateDepth++;
+    }
+
+    /**
+     * End an update, publishing its changes if it was the outermost one
+     */
+    public void endUpdate() {
+        if (updateDepth == 0) {
+            throw new IllegalStateException("endUpdate called without beginUpdate");
+        }
+        if (--updateDepth == 0) {
+            publish();
+        }
+    }
+
+    /**
+     * Make a set of changes as a single update
+     * @param changes the changes to make
+     */
+    public void update(Runnable changes) {
+        beginUpdate();
+        try {
+            changes.run();
+        } finally {
+            endUpdate();
+        }
+    }
+
+    /**
+     * Set the listener to call with the cells changed by each update. Changes made outside an update are published
+     * straight away, one cell at a time.
+     * @param listener listener to set
+     */
+    public void setGridChangedListener(GridChangedListener listener) {
+        this.gridChangedListener = listener;
+    }
+
+    /**
+     * Called by the board for every cell that changes
+     */
+    private void cellChanged(int x, int y, int value) {
+        int cell = y * cols + x;
+        if (!dirty[cell]) {
+            dirty[cell] = true;
+            dirtyCells[dirtyCount++] = cell;
+        }
+        if (updateDepth == 0) {
+            publish();
+        }
+    }
+
+    /**
+     * Copy the final value of every changed cell into its property, then tell the listener which cells changed
+     */
+    private void publish() {
+        if (dirtyCount == 0) {
+            return;
+        }
+        Set<GameBlockCoordinate> changed = gridChangedListener == null ? null : new HashSet<>();
+        for (int i = 0; i < dirtyCount; i++) {
+            int cell = dirtyCells[i];
+            int x = cell % cols;
+            int y = cell / cols;
+            dirty[cell] = false;
+            //A cell changed and changed back within the update is left alone
+            int value = board.get(x, y);
+            if (grid[x][y].get() != value) {
+                grid[x][y].set(value);
+                if (changed != null) {
+                    changed.add(new GameBlockCoordinate(x, y));
+                }
+            }
+        }
+        dirtyCount = 0;
+        if (changed != null && !changed.isEmpty()) {
+            gridChangedListener.gridChanged(changed);
+        }
     }
 
     /**
@@ -69,9 +194,10 @@ public class Grid {
      * @param x column
      * @param y row
      * @param value the new value
+     * @throws IndexOutOfBoundsException if x, y is not in the grid
      */
     public void set(int x, int y, int value) {
-        grid[x][y].set(value);
+        board.set(x, y, value);
     }
 
     /**
@@ -81,13 +207,16 @@ public class Grid {
      * @return the value
      */
     public int get(int x, int y) {
-        try {
-            //Get the value held in the property at the x and y index provided
-            return grid[x][y].get();
-        } catch (ArrayIndexOutOfBoundsException e) {
-            //No such index
-            return -1;
-        }
+        //Off-board cells report -1
+        return board.get(x, y);
+    }
+
+    /**
+     * Get the primitive model backing this grid. Changes made to it are reflected in the properties.
+     * @return the bit board
+     */
+    public BitBoard getBoard() {
+        return board;
     }
 
     /**
@@ -108,46 +237,30 @@ public class Grid {
 
     /**
      * returns true if GamePiece gp can be placed
-     * @param x: row
-     * @param y: column
+     * a piece can't be placed if any of its blocks would be off the grid or on a filled block
+     * @param x: column
+     * @param y: row
      * @param gp: GamePiece
-     * @return
+     * @return if piece can be placed
      */
     boolean canPlayPiece(int x, int y, GamePiece gp) {
-        int[][] piece = gp.getBlocks();
-        int p = piece.length;
-        int g = getCols();
-        System.out.println(" x, y ="+x+","+y);
-        int offset = p / 2; // integer division
-        for (int i = 0; i < p; i++)
-            for (int j = 0; j < p; j++)
-                if (piece[i][j] > 0 && get(i + x - offset, j + y - offset) > 0)
-                    return false;
-        return true;
+        return board.canPlayPiece(x, y, gp);
     }
 
     /**
      * checks if piece can be played
-     * if it can't be played then plays fail sound and returns false
-     * if it can be played then plays successful sound and returns true
-     * @param x: row
-     * @param y: column
+     * if it can't be played then returns false
+     * if it can be played then places it and returns true
+     * @param x: column
+     * @param y: row
      * @param gp: GamePiece
      * @return if piece can be played
      */
     boolean playPiece(int x, int y, GamePiece gp){
         if (!canPlayPiece(x, y, gp)) {
-            Multimedia.playSound("fail.wav");
             return false;
         }
-        int[][] piece = gp.getBlocks();
-        int offset = piece.length/2;
-        for (int i = 0; i < piece.length; i++)
-            for (int j = 0; j < piece.length; j++) {
-                if (piece[i][j] > 0)
-                    set(i+x-offset, j+y-offset, piece[i][j]);
-            }
-        Multimedia.playSound("place.wav");
+        board.playPiece(x, y, gp);
         return true;
     }
 }
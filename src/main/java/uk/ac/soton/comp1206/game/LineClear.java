@@ -0,0 +1,117 @@
+package uk.ac.soton.comp1206.game;
+
+/**
+ * A LineClear finds and clears the full rows and columns left by placing a piece on a BitBoard. Only the rows and
+ * columns inside the placed piece's bounding box can have become full, so only those are checked.
+ *
+ * The arrays holding the result are reused, so one LineClear can be kept per engine or search thread and used for
+ * every move without allocating.
+ */
+public class LineClear {
+
+    private final int[] rows;
+    private final int[] cols;
+    private int rowCount = 0;
+    private int colCount = 0;
+    private int blockCount = 0;
+
+    /**
+     * Create a new LineClear for boards of the given size
+     * @param cols number of columns
+     * @param rows number of rows
+     */
+    public LineClear(int cols, int rows) {
+        this.rows = new int[rows];
+        this.cols = new int[cols];
+    }
+
+    /**
+     * Find the full lines after a piece was placed with its centre at the given column and row, without clearing them
+     * @param board board the piece was placed on
+     * @param x column the piece was placed at
+     * @param y row the piece was placed at
+     * @param piece the piece that was placed
+     * @return number of full lines
+     */
+    public int find(BitBoard board, int x, int y, GamePiece piece) {
+        rowCount = 0;
+        for (int row = y - 1 + piece.getMinY(); row <= y - 1 + piece.getMaxY(); row++) {
+            if (board.isRowFull(row)) {
+                rows[rowCount++] = row;
+            }
+        }
+        colCount = 0;
+        for (int col = x - 1 + piece.getMinX(); col <= x - 1 + piece.getMaxX(); col++) {
+            if (board.isColFull(col)) {
+                cols[colCount++] = col;
+            }
+        }
+
+        //Blocks where a cleared row and column cross are only counted once
+        blockCount = rowCount * board.getCols() + colCount * board.getRows() - rowCount * colCount;
+        return rowCount + colCount;
+    }
+
+    /**
+     * Empty every cell in the lines found by the last call to find
+     * @param board board to clear
+     */
+    public void clear(BitBoard board) {
+        for (int i = 0; i < rowCount; i++) {
+            int row = rows[i];
+            for (int col = 0; col < board.getCols(); col++) {
+                board.set(col, row, 0);
+            }
+        }
+        for (int i = 0; i < colCount; i++) {
+            int col = cols[i];
+            for (int row = 0; row < board.getRows(); row++) {
+                if (board.get(col, row) != 0) board.set(col, row, 0);
+            }
+        }
+    }
+
+    /**
+     * @return number of full lines found
+     */
+    public int getLineCount() {
+        return rowCount + colCount;
+    }
+
+    /**
+     * @return number of full rows found
+     */
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * @param index index into the full rows found
+     * @return the row number
+     */
+    public int getRow(int index) {
+        return rows[index];
+    }
+
+    /**
+     * @return number of full columns found
+     */
+    public int getColCount() {
+        return colCount;
+    }
+
+    /**
+     * @param index index into the full columns found
+     * @return the column number
+     */
+    public int getCol(int index) {
+        return cols[index];
+    }
+
+    /**
+     * @return number of distinct blocks in the full lines found
+     */
+    public int getBlockCount() {
+        return blockCount;
+    }
+}
@@ -1,8 +1,6 @@
 package uk.ac.soton.comp1206.game;
 
 import javafx.application.Application;
-import javafx.scene.media.Media;
-import javafx.scene.media.MediaPlayer;
 import javafx.stage.Stage;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -11,79 +9,39 @@ import java.nio.file.Paths;
 
 public class Multimedia {
     private static final Logger logger = LogManager.getLogger(Multimedia.class);
-    private static boolean audioEnabled = true;
-    private static boolean musicEnabled = true;
-    /**
-     * audioPlayer that plays audio
-     */
-    private static MediaPlayer audioPlayer;
-    /**
-     * musicPlayer that plays music
-     */
-    private static MediaPlayer musicPlayer;
 
     /**
-     * plays audio
-     * @param file location of audio file
-     */
-    public static void playAudio(String file) {
-        String music = Multimedia.class.getResource("/music/" + file).toExternalForm();
-        logger.info("Playing audio: " + music);
-
-        try {
-            Media play = new Media(music);
-            audioPlayer = new MediaPlayer(play);
-            audioPlayer.play();
-        } catch (Exception e) {
-            audioEnabled = false;
-            e.printStackTrace();
-            logger.error("Unable to play audio file, disabling audio");
-        }
-    }
-
-    /**
-     * plays music on a loop
+     * plays music on a loop, fading from whatever was playing
      * @param file location of music file
      */
     public static void playMusic(String file) {
-        String bgMusic = Multimedia.class.getResource("/music/" + file).toExternalForm();
-        logger.info("Playing audio: " + bgMusic);
-
-        try {
-            Media play = new Media(bgMusic);
-            musicPlayer = new MediaPlayer(play);
-            musicPlayer.setOnEndOfMedia(() -> musicPlayer.seek(javafx.util.Duration.ZERO));
-            musicPlayer.play();
-        } catch (Exception e) {
-            musicEnabled = false;
-            e.printStackTrace();
-            logger.error("Unable to play audio file, disabling audio");
-        }
-
+        logger.info("Playing music: " + file);
+        MusicEngine.play(file);
     }
 
     /**
-     * plays sounds
+     * plays sounds from the SoundBank, on the AudioDispatcher's thread so this never waits for them
      * @param file location of sound file
      */
     public static void playSound(String file) {
-        String music = Multimedia.class.getResource("/sounds/" + file).toExternalForm();
-        logger.info("Playing audio: " + music);
+        AudioDispatcher.play(file);
+    }
 
-        try {
-            Media play = new Media(music);
-            audioPlayer = new MediaPlayer(play);
-            audioPlayer.play();
-        } catch (Exception e) {
-            e.printStackTrace();
-            logger.error("Unable to play audio file, disabling audio");
-        }
+    /**
+     * plays sounds from the SoundBank, on the AudioDispatcher's thread so this never waits for them
+     * @param file location of sound file
+     * @param priority AudioDispatcher.LOW, NORMAL or HIGH
+     * @param duck true to lower the music while the sound plays
+     */
+    public static void playSound(String file, int priority, boolean duck) {
+        AudioDispatcher.play(file, priority, duck);
     }
 
     /**
-     * stops audio
+     * lowers the music under a sound, or brings it back up
+     * @param ducked true to lower the music
      */
-    public static void stopAudio() {
-        audioPlayer.stop();
+    public static void setMusicDucked(boolean ducked) {
+        MusicEngine.setDucked(ducked);
     }
 }
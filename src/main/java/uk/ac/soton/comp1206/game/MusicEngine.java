@@ -0,0 +1,179 @@
+package uk.ac.soton.comp1206.game;
+
+import javafx.animation.KeyFrame;
+import javafx.animation.KeyValue;
+import javafx.animation.Timeline;
+import javafx.application.Platform;
+import javafx.beans.property.DoubleProperty;
+import javafx.beans.property.SimpleDoubleProperty;
+import javafx.scene.media.MediaPlayer;
+import javafx.util.Duration;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import uk.ac.soton.comp1206.ui.AssetManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The MusicEngine plays the looping background music under /music. A track is only opened when it is first asked
+ * for, on the AssetManager's threads, and its MediaPlayer streams it rather than decoding it up front, so asking for a
+ * track returns straight away and never holds up a scene switch.
+ *
+ * Tracks loop inside the media engine, with no gap for a seek back to the start. Asking for a different track fades
+ * the one playing out while the new one fades in, and once a track has faded out its player is disposed. Asking again
+ * for a track which is still fading out brings it back rather than opening it again.
+ *
+ * Call on the FX thread, apart from setDucked.
+ */
+public class MusicEngine {
+
+    private static final Logger logger = LogManager.getLogger(MusicEngine.class);
+
+    /**
+     * Music for the menus
+     */
+    public static final String MENU = "menu.mp3";
+
+    /**
+     * Music for the game
+     */
+    public static final String GAME = "end.wav";
+
+    /**
+     * How long a track takes to fade fully in or out
+     */
+    private static final Duration CROSSFADE = Duration.millis(1500);
+
+    /**
+     * Volume of the music while a sound is ducking it
+     */
+    private static final double DUCKED_VOLUME = 0.35;
+
+    /**
+     * A track, and the player streaming it once it has been opened
+     */
+    private static class Track {
+        private final String file;
+        private final DoubleProperty fade = new SimpleDoubleProperty(0);
+        private MediaPlayer player;
+        private Timeline timeline;
+
+        private Track(String file) {
+            this.file = file;
+        }
+    }
+
+    /**
+     * Volume of every track on top of its fade, lowered while a sound ducks the music
+     */
+    private static final DoubleProperty level = new SimpleDoubleProperty(1);
+
+    /**
+     * The track playing or fading in, or null if there is none
+     */
+    private static Track current;
+
+    /**
+     * Tracks fading out, which are released when they reach silence
+     */
+    private static final List<Track> fadingOut = new ArrayList<>();
+
+    /**
+     * Fade to a track, looping it until another is asked for. Does nothing if it is already playing.
+     * @param file name of the track under /music
+     */
+    public static void play(String file) {
+        if (current != null && current.file.equals(file)) {
+            return;
+        }
+        if (current != null) {
+            fadeOut(current);
+        }
+
+        for (Track track : fadingOut) {
+            if (track.file.equals(file)) {
+                //Still open, so bring it back in from where it has faded to
+                fadingOut.remove(track);
+                current = track;
+                fade(track, 1, null);
+                return;
+            }
+        }
+
+        Track track = new Track(file);
+        current = track;
+        long start = System.nanoTime();
+        AssetManager.media("/music/" + file)
+                .thenApplyAsync(MediaPlayer::new, AssetManager.getLoader())
+                .thenAcceptAsync(player -> open(track, player, start), Platform::runLater)
+                .exceptionally(e -> {
+                    logger.error("Unable to play music " + file + ": " + e.getMessage());
+                    return null;
+                });
+    }
+
+    /**
+     * Fade out the music
+     */
+    public static void stop() {
+        if (current != null) {
+            fadeOut(current);
+            current = null;
+        }
+    }
+
+    /**
+     * Lower the music under a sound, or bring it back up. Can be called from any thread.
+     * @param ducked true to lower the music
+     */
+    public static void setDucked(boolean ducked) {
+        Platform.runLater(() -> level.set(ducked ? DUCKED_VOLUME : 1));
+    }
+
+    /**
+     * Start a track's player once it has been opened, or release it if another track was asked for meanwhile
+     */
+    private static void open(Track track, MediaPlayer player, long start) {
+        if (track != current) {
+            player.dispose();
+            return;
+        }
+        track.player = player;
+        player.setCycleCount(MediaPlayer.INDEFINITE);
+        player.volumeProperty().bind(track.fade.multiply(level));
+        player.setOnPlaying(() -> logger.info("Playing music {} after {} ms", track.file,
+                (System.nanoTime() - start) / 1000000));
+        player.setOnError(() -> logger.error("Unable to play music {}: {}", track.file, player.getError()));
+        player.play();
+        fade(track, 1, null);
+    }
+
+    private static void fadeOut(Track track) {
+        fadingOut.add(track);
+        fade(track, 0, () -> {
+            fadingOut.remove(track);
+            if (track.player != null) {
+                track.player.stop();
+                track.player.dispose();
+                logger.info("Released music {}", track.file);
+            }
+        });
+    }
+
+    /**
+     * Fade a track from wherever it is to the target volume, taking the part of a full crossfade it has to cover
+     */
+    private static void fade(Track track, double target, Runnable onFinished) {
+        if (track.timeline != null) {
+            track.timeline.stop();
+        }
+        double distance = Math.abs(target - track.fade.get());
+        track.timeline = new Timeline(new KeyFrame(CROSSFADE.multiply(Math.max(distance, 0.01)),
+                new KeyValue(track.fade, target)));
+        if (onFinished != null) {
+            track.timeline.setOnFinished(event -> onFinished.run());
+        }
+        track.timeline.play();
+    }
+}
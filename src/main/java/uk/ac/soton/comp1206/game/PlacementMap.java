@@ -0,0 +1,123 @@
+package uk.ac.soton.comp1206.game;
+
+import java.util.Arrays;
+
+/**
+ * The PlacementMap holds, for each piece and rotation, a bitmap of every anchor on a BitBoard where that piece can be
+ * placed. A bitmap is worked out the first time it is asked for and then cached until the board next changes, so
+ * repeated hover, click and move-search queries against the same board do not re-test the placement.
+ */
+public class PlacementMap {
+
+    /**
+     * The board the placements are for
+     */
+    private final BitBoard board;
+
+    /**
+     * Legal anchors, one row word per board row, indexed by piece number * rotations + rotation
+     */
+    private final long[][] anchors;
+
+    /**
+     * The board version each bitmap was worked out for, or -1 if it never has been
+     */
+    private final int[] versions;
+
+    /**
+     * Whether each bitmap has any legal anchor at all
+     */
+    private final boolean[] any;
+
+    /**
+     * Create a new PlacementMap for the given board
+     * @param board board to track
+     */
+    public PlacementMap(BitBoard board) {
+        this.board = board;
+        int shapes = GamePiece.PIECES * GamePiece.ROTATIONS;
+        this.anchors = new long[shapes][board.getRows()];
+        this.versions = new int[shapes];
+        this.any = new boolean[shapes];
+        Arrays.fill(versions, -1);
+    }
+
+    /**
+     * Get the bitmap for a piece, working it out first if the board has changed since it was last asked for
+     * @param piece the piece
+     * @return index of the up to date bitmap
+     */
+    private int update(GamePiece piece) {
+        int index = piece.getType() * GamePiece.ROTATIONS + piece.getRotation();
+        int version = board.getVersion();
+        if (versions[index] != version) {
+            long[] rows = anchors[index];
+            boolean found = false;
+            for (int y = 0; y < rows.length; y++) {
+                rows[y] = board.getLegalAnchors(y, piece);
+                found |= rows[y] != 0;
+            }
+            any[index] = found;
+            versions[index] = version;
+        }
+        return index;
+    }
+
+    /**
+     * Check whether a piece can be placed with its centre at the given column and row
+     * @param x column
+     * @param y row
+     * @param piece the piece
+     * @return true if the placement is legal
+     */
+    public boolean canPlay(int x, int y, GamePiece piece) {
+        if (!board.contains(x, y)) {
+            return false;
+        }
+        return (anchors[update(piece)][y] & (1L << x)) != 0;
+    }
+
+    /**
+     * Get the legal anchors of a piece along one row
+     * @param y row
+     * @param piece the piece
+     * @return mask with bit x set when the piece can be placed at column x
+     */
+    public long getRow(int y, GamePiece piece) {
+        return anchors[update(piece)][y];
+    }
+
+    /**
+     * @param piece the piece
+     * @return true if the piece, as rotated, can be placed anywhere
+     */
+    public boolean hasMove(GamePiece piece) {
+        return any[update(piece)];
+    }
+
+    /**
+     * @param piece the piece
+     * @return true if the piece can be placed anywhere in any rotation
+     */
+    public boolean hasMoveInAnyRotation(GamePiece piece) {
+        for (int rotation = 0; rotation < GamePiece.ROTATIONS; rotation++) {
+            if (hasMove(piece.rotate(rotation))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param piece the piece
+     * @return the number of anchors the piece, as rotated, can be placed at
+     */
+    public int countMoves(GamePiece piece) {
+        long[] rows = anchors[update(piece)];
+        int count = 0;
+        for (long row : rows) {
+            count += Long.bitCount(row);
+        }
+        return count;
+    }
+}
@@ -0,0 +1,59 @@
+package uk.ac.soton.comp1206.game;
+
+import java.util.Random;
+
+/**
+ * A Random whose internal state can be saved and restored, so a game can be resumed part way through and still deal
+ * the same pieces. It uses the same generator as java.util.Random, so for a given seed it produces exactly the same
+ * numbers.
+ *
+ * Unlike java.util.Random it is not safe to share between threads.
+ */
+public class RepeatableRandom extends Random {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final long MULTIPLIER = 0x5DEECE66DL;
+    private static final long ADDEND = 0xBL;
+    private static final long MASK = (1L << 48) - 1;
+
+    /**
+     * The 48 bit generator state. Not initialised here, as the Random constructor sets it through setSeed.
+     */
+    private long state;
+
+    /**
+     * Create a new RepeatableRandom
+     * @param seed seed, giving the same numbers as new Random(seed)
+     */
+    public RepeatableRandom(long seed) {
+        super(seed);
+    }
+
+    @Override
+    public synchronized void setSeed(long seed) {
+        super.setSeed(seed);
+        state = (seed ^ MULTIPLIER) & MASK;
+    }
+
+    @Override
+    protected int next(int bits) {
+        state = (state * MULTIPLIER + ADDEND) & MASK;
+        return (int) (state >>> (48 - bits));
+    }
+
+    /**
+     * @return the generator state
+     */
+    public long getState() {
+        return state;
+    }
+
+    /**
+     * Continue from a state returned by getState
+     * @param state generator state
+     */
+    public void setState(long state) {
+        this.state = state & MASK;
+    }
+}
@@ -0,0 +1,203 @@
+package uk.ac.soton.comp1206.game;
+
+import javafx.scene.media.AudioClip;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import uk.ac.soton.comp1206.ui.AssetManager;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The SoundBank plays the short sound effects under /sounds. Each is decoded once into an AudioClip, by the
+ * AssetManager's preload at startup, and plays from memory without building a media pipeline.
+ *
+ * Any number of sounds can play at once, up to a limit per sound and a limit overall. A sound asked for while either
+ * limit is reached is dropped rather than cutting off one already playing. How long each sound is comes from its WAV
+ * header, so voices are counted without polling the clips.
+ *
+ * The time from a sound being asked for to it being handed to the audio engine is recorded, including any time it
+ * spent waiting in the AudioDispatcher's queue. The audio engine starts
+ * it after that, which JavaFX does not report.
+ */
+public class SoundBank {
+
+    private static final Logger logger = LogManager.getLogger(SoundBank.class);
+
+    /**
+     * Every sound effect, under /sounds, which the AssetManager preloads
+     */
+    public static final String[] SOUNDS = {
+            "clear.wav", "explode.wav", "fail.wav", "intro.mp3", "level.wav", "lifegain.wav", "lifelose.wav",
+            "message.wav", "place.wav", "pling.wav", "rotate.wav", "transition.wav"
+    };
+
+    /**
+     * How many copies of one sound can play at once
+     */
+    public static final int VOICES_PER_SOUND = 2;
+
+    /**
+     * How many sounds can play at once
+     */
+    public static final int MAX_VOICES = 8;
+
+    /**
+     * Length assumed for a sound whose header cannot be read
+     */
+    private static final long DEFAULT_LENGTH = 2_000_000_000L;
+
+    /**
+     * When each playing copy of each sound ends
+     */
+    private static final Map<String, ArrayDeque<Long>> voices = new HashMap<>();
+
+    /**
+     * Length of each sound in nanoseconds
+     */
+    private static final Map<String, Long> lengths = new HashMap<>();
+
+    private static long played;
+    private static long dropped;
+    private static long totalLatency;
+    private static long worstLatency;
+
+    /**
+     * Play a sound effect, unless too many are already playing
+     * @param file name of the sound under /sounds
+     * @return true if it was played
+     */
+    public static boolean play(String file) {
+        return play(file, System.nanoTime());
+    }
+
+    /**
+     * Play a sound effect which was asked for earlier, unless too many are already playing
+     * @param file name of the sound under /sounds
+     * @param requested when the sound was asked for, from System.nanoTime, which its latency is measured from
+     * @return true if it was played
+     */
+    public static synchronized boolean play(String file, long requested) {
+        long start = System.nanoTime();
+        AudioClip clip;
+        try {
+            clip = AssetManager.getClip("/sounds/" + file);
+        } catch (RuntimeException e) {
+            logger.error("Unable to play sound " + file + ": " + e.getMessage());
+            return false;
+        }
+
+        ArrayDeque<Long> playing = voices.computeIfAbsent(file, key -> new ArrayDeque<>());
+        int total = 0;
+        for (ArrayDeque<Long> ends : voices.values()) {
+            //Copies end in the order they started, so the finished ones are at the front
+            while (!ends.isEmpty() && ends.peekFirst() <= start) {
+                ends.pollFirst();
+            }
+            total += ends.size();
+        }
+        if (playing.size() >= VOICES_PER_SOUND || total >= MAX_VOICES) {
+            dropped++;
+            logger.debug("Dropped sound {}, {} copies and {} sounds playing", file, playing.size(), total);
+            return false;
+        }
+
+        clip.play();
+        long latency = System.nanoTime() - requested;
+        playing.addLast(start + lengths.computeIfAbsent(file, SoundBank::readLength));
+
+        played++;
+        totalLatency += latency;
+        worstLatency = Math.max(worstLatency, latency);
+        logger.info("Playing sound {} after {} µs", file, latency / 1000);
+        return true;
+    }
+
+    /**
+     * @param file name of the sound under /sounds
+     * @return how long the sound plays for, in nanoseconds
+     */
+    public static synchronized long getLength(String file) {
+        return lengths.computeIfAbsent(file, SoundBank::readLength);
+    }
+
+    /**
+     * Stop every sound effect
+     */
+    public static synchronized void stopAll() {
+        for (String file : voices.keySet()) {
+            AssetManager.clip("/sounds/" + file).thenAccept(AudioClip::stop);
+        }
+        voices.clear();
+    }
+
+    /**
+     * @return number of sounds played
+     */
+    public static synchronized long getPlayedCount() {
+        return played;
+    }
+
+    /**
+     * @return number of sounds dropped because too many were playing
+     */
+    public static synchronized long getDroppedCount() {
+        return dropped;
+    }
+
+    /**
+     * @return mean time from asking for a sound to handing it to the audio engine, in nanoseconds
+     */
+    public static synchronized long getMeanLatency() {
+        return played == 0 ? 0 : totalLatency / played;
+    }
+
+    /**
+     * @return longest time from asking for a sound to handing it to the audio engine, in nanoseconds
+     */
+    public static synchronized long getWorstLatency() {
+        return worstLatency;
+    }
+
+    /**
+     * Work out how long a WAV file plays for from its header: the size of its data chunk over its bytes per second.
+     * Read the first time each sound is played.
+     * @param file name of the sound under /sounds
+     * @return length in nanoseconds
+     */
+    private static long readLength(String file) {
+        URL url = SoundBank.class.getResource("/sounds/" + file);
+        if (url == null) {
+            return DEFAULT_LENGTH;
+        }
+        try (DataInputStream in = new DataInputStream(url.openStream())) {
+            if (in.readInt() != 0x52494646) {
+                //Not "RIFF"
+                return DEFAULT_LENGTH;
+            }
+            in.skipNBytes(8);
+            long byteRate = 0;
+            while (true) {
+                int chunk = in.readInt();
+                long size = Integer.toUnsignedLong(Integer.reverseBytes(in.readInt()));
+                if (chunk == 0x666D7420) {
+                    //"fmt ": format, channels and sample rate come before the byte rate
+                    in.skipNBytes(8);
+                    byteRate = Integer.toUnsignedLong(Integer.reverseBytes(in.readInt()));
+                    in.skipNBytes(size - 12 + (size & 1));
+                } else if (chunk == 0x64617461) {
+                    //"data"
+                    return byteRate == 0 ? DEFAULT_LENGTH : size * 1_000_000_000L / byteRate;
+                } else {
+                    in.skipNBytes(size + (size & 1));
+                }
+            }
+        } catch (IOException e) {
+            return DEFAULT_LENGTH;
+        }
+    }
+}
@@ -0,0 +1,306 @@
+package uk.ac.soton.comp1206.game;
+
+/**
+ * Symmetry picks a canonical form for a board and its pieces among the rotations and reflections of the board, so
+ * that equivalent states can share one entry in a cache, transposition table or opening book.
+ *
+ * A transform is numbered 0 to 7 and applies up to three steps to a coordinate, in order: bit 0 swaps x and y, bit 1
+ * mirrors x and bit 2 flips y. Together these give all 8 symmetries of a square board. Transforms that swap x and y
+ * are skipped on a board that is not square, leaving its 4 symmetries.
+ *
+ * Pieces are transformed with the same steps on their 3x3 grid, which maps them onto a rotation of the same piece or,
+ * for reflections, onto its mirror image (for example L and J). Only the shape of pieces and which cells are filled are
+ * considered, not colours, as colours have no effect on the rules.
+ *
+ * Boards up to 8 x 8 are packed into a single long, with bit (8 * y + x) set when a cell is filled, and transformed
+ * with a handful of bit operations. Larger boards fall back to transforming cell by cell.
+ */
+public class Symmetry {
+
+    /**
+     * The number of transforms
+     */
+    public static final int TRANSFORMS = 8;
+
+    private static final int SWAP = 1;
+    private static final int MIRROR = 2;
+    private static final int FLIP = 4;
+
+    /**
+     * The piece each piece and rotation becomes under each transform, as piece number * rotations + rotation
+     */
+    private static final int[][] PIECE_MAP = new int[TRANSFORMS][GamePiece.PIECES * GamePiece.ROTATIONS];
+
+    static {
+        int shapes = GamePiece.PIECES * GamePiece.ROTATIONS;
+        for (int t = 0; t < TRANSFORMS; t++) {
+            for (int i = 0; i < shapes; i++) {
+                GamePiece piece = GamePiece.createPiece(i / GamePiece.ROTATIONS, i % GamePiece.ROTATIONS);
+                int mask = 0;
+                for (int y = 0; y < 3; y++) {
+                    for (int x = 0; x < 3; x++) {
+                        if ((piece.getMask() & (1 << (y * 3 + x))) != 0) {
+                            mask |= 1 << (transformY(t, x, y, 3, 3) * 3 + transformX(t, x, y, 3, 3));
+                        }
+                    }
+                }
+                PIECE_MAP[t][i] = -1;
+                for (int j = 0; j < shapes; j++) {
+                    if (GamePiece.createPiece(j / GamePiece.ROTATIONS, j % GamePiece.ROTATIONS).getMask() == mask) {
+                        PIECE_MAP[t][i] = j;
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Check whether a transform applies to a board of the given size
+     * @param t transform
+     * @param cols number of columns
+     * @param rows number of rows
+     * @return true if the transform maps the board onto itself
+     */
+    public static boolean isValid(int t, int cols, int rows) {
+        return (t & SWAP) == 0 || cols == rows;
+    }
+
+    /**
+     * Get the column a cell moves to under a transform
+     * @param t transform
+     * @param x column
+     * @param y row
+     * @param cols number of columns
+     * @param rows number of rows
+     * @return new column
+     */
+    public static int transformX(int t, int x, int y, int cols, int rows) {
+        int tx = (t & SWAP) != 0 ? y : x;
+        return (t & MIRROR) != 0 ? cols - 1 - tx : tx;
+    }
+
+    /**
+     * Get the row a cell moves to under a transform
+     * @param t transform
+     * @param x column
+     * @param y row
+     * @param cols number of columns
+     * @param rows number of rows
+     * @return new row
+     */
+    public static int transformY(int t, int x, int y, int cols, int rows) {
+        int ty = (t & SWAP) != 0 ? x : y;
+        return (t & FLIP) != 0 ? rows - 1 - ty : ty;
+    }
+
+    /**
+     * Get the piece a piece becomes under a transform
+     * @param piece the piece
+     * @param t transform
+     * @return the transformed piece, or null if no piece has the transformed shape
+     */
+    public static GamePiece transform(GamePiece piece, int t) {
+        int index = PIECE_MAP[t][piece.getType() * GamePiece.ROTATIONS + piece.getRotation()];
+        if (index < 0) {
+            return null;
+        }
+        return GamePiece.createPiece(index / GamePiece.ROTATIONS, index % GamePiece.ROTATIONS);
+    }
+
+    /**
+     * Pack a board of up to 8 x 8 into a single long
+     * @param board the board
+     * @return packed board with bit (8 * y + x) set when a cell is filled
+     */
+    public static long pack(BitBoard board) {
+        long packed = 0;
+        for (int y = 0; y < board.getRows(); y++) {
+            packed |= board.getRowBits(y) << (8 * y);
+        }
+        return packed;
+    }
+
+    /**
+     * Transform a packed board
+     * @param packed board packed by pack
+     * @param t transform
+     * @param cols number of columns, up to 8
+     * @param rows number of rows, up to 8
+     * @return the packed transformed board
+     */
+    public static long transformPacked(long packed, int t, int cols, int rows) {
+        if ((t & SWAP) != 0) {
+            //Swap bit (8y + x) with bit (8x + y) by exchanging progressively smaller blocks across the diagonal
+            long k;
+            k = 0x0F0F0F0F00000000L & (packed ^ (packed << 28));
+            packed ^= k ^ (k >>> 28);
+            k = 0x3333000033330000L & (packed ^ (packed << 14));
+            packed ^= k ^ (k >>> 14);
+            k = 0x5500550055005500L & (packed ^ (packed << 7));
+            packed ^= k ^ (k >>> 7);
+        }
+        if ((t & MIRROR) != 0) {
+            //Reverse the bits within each byte, then move the row back down to start at column 0
+            packed = Long.reverse(Long.reverseBytes(packed)) >>> (8 - cols);
+        }
+        if ((t & FLIP) != 0) {
+            //Reverse the order of the bytes, then move the rows back down to start at row 0
+            packed = Long.reverseBytes(packed) >>> (8 * (8 - rows));
+        }
+        return packed;
+    }
+
+    /**
+     * Find the transform giving the canonical form of a board and pieces: the one with the smallest transformed board,
+     * with ties broken by the transformed pieces
+     * @param board the board
+     * @param current current piece, or null
+     * @param following following piece, or null
+     * @return the canonical transform
+     */
+    public static int canonicalTransform(BitBoard board, GamePiece current, GamePiece following) {
+        return canonicalTransform(board, current, following, false);
+    }
+
+    private static int canonicalTransform(BitBoard board, GamePiece current, GamePiece following, boolean anyRotation) {
+        int cols = board.getCols();
+        int rows = board.getRows();
+        if (cols <= 8 && rows <= 8) {
+            long packed = pack(board);
+            int best = 0;
+            long bestPacked = packed;
+            for (int t = 1; t < TRANSFORMS; t++) {
+                if (!isValid(t, cols, rows)) continue;
+                long candidate = transformPacked(packed, t, cols, rows);
+                int order = Long.compareUnsigned(candidate, bestPacked);
+                if (order < 0 || (order == 0 && comparePieces(t, best, current, following, anyRotation) < 0)) {
+                    best = t;
+                    bestPacked = candidate;
+                }
+            }
+            return best;
+        }
+
+        //Larger boards: compare transformed cells in row order until they differ
+        int best = 0;
+        for (int t = 1; t < TRANSFORMS; t++) {
+            if (!isValid(t, cols, rows)) continue;
+            int order = compareCells(board, t, best);
+            if (order < 0 || (order == 0 && comparePieces(t, best, current, following, anyRotation) < 0)) {
+                best = t;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Get a hash of the canonical form of a board and pieces. Every state related by a symmetry gives the same hash.
+     * @param board the board
+     * @param current current piece, or null
+     * @param following following piece, or null
+     * @param anyRotation true if the rotation of the pieces does not matter, only their shape
+     * @return hash
+     */
+    public static long canonicalHash(BitBoard board, GamePiece current, GamePiece following, boolean anyRotation) {
+        int t = canonicalTransform(board, current, following, anyRotation);
+        int cols = board.getCols();
+        int rows = board.getRows();
+        long hash = 0;
+        for (int y = 0; y < rows; y++) {
+            long bits = board.getRowBits(y);
+            while (bits != 0) {
+                int x = Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                hash ^= Zobrist.cell(transformX(t, x, y, cols, rows), transformY(t, x, y, cols, rows));
+            }
+        }
+        if (current != null) {
+            hash ^= Zobrist.piece(pieceKey(current, t, anyRotation), Zobrist.CURRENT);
+        }
+        if (following != null) {
+            hash ^= Zobrist.piece(pieceKey(following, t, anyRotation), Zobrist.FOLLOWING);
+        }
+        return hash;
+    }
+
+    /**
+     * Get the piece to hash for a transformed piece
+     */
+    private static GamePiece pieceKey(GamePiece piece, int t, boolean anyRotation) {
+        GamePiece transformed = transform(piece, t);
+        if (transformed == null) {
+            transformed = piece;
+        }
+        return anyRotation ? unrotated(transformed) : transformed;
+    }
+
+    /**
+     * @return the piece in its starting rotation, or null
+     */
+    private static GamePiece unrotated(GamePiece piece) {
+        return piece == null ? null : GamePiece.createPiece(piece.getType());
+    }
+
+    /**
+     * Compare the pieces under two transforms, by piece number then rotation, current piece first
+     * @return negative if transform a gives the smaller pieces
+     */
+    private static int comparePieces(int a, int b, GamePiece current, GamePiece following, boolean anyRotation) {
+        int order = comparePiece(a, b, current, anyRotation);
+        return order != 0 ? order : comparePiece(a, b, following, anyRotation);
+    }
+
+    private static int comparePiece(int a, int b, GamePiece piece, boolean anyRotation) {
+        if (piece == null) {
+            return 0;
+        }
+        int index = piece.getType() * GamePiece.ROTATIONS + piece.getRotation();
+        int mappedA = PIECE_MAP[a][index];
+        int mappedB = PIECE_MAP[b][index];
+        //A transform with no matching piece shape can never be canonical
+        if (mappedA < 0) mappedA = Integer.MAX_VALUE;
+        if (mappedB < 0) mappedB = Integer.MAX_VALUE;
+        if (anyRotation) {
+            mappedA /= GamePiece.ROTATIONS;
+            mappedB /= GamePiece.ROTATIONS;
+        }
+        return Integer.compare(mappedA, mappedB);
+    }
+
+    /**
+     * Compare the cells of a board under two transforms, in row order of the transformed board
+     * @return negative if transform a gives the smaller board
+     */
+    private static int compareCells(BitBoard board, int a, int b) {
+        int cols = board.getCols();
+        int rows = board.getRows();
+        int inverseA = inverse(a);
+        int inverseB = inverse(b);
+        for (int y = 0; y < rows; y++) {
+            for (int x = 0; x < cols; x++) {
+                boolean filledA = board.get(transformX(inverseA, x, y, cols, rows), transformY(inverseA, x, y, cols, rows)) > 0;
+                boolean filledB = board.get(transformX(inverseB, x, y, cols, rows), transformY(inverseB, x, y, cols, rows)) > 0;
+                if (filledA != filledB) {
+                    return filledA ? 1 : -1;
+                }
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Get the transform which undoes another
+     * @param t transform
+     * @return inverse transform
+     */
+    public static int inverse(int t) {
+        //Swapping then mirroring x is undone by flipping y then swapping, and likewise the other way round
+        if ((t & SWAP) != 0) {
+            int mirror = (t & MIRROR) != 0 ? FLIP : 0;
+            int flip = (t & FLIP) != 0 ? MIRROR : 0;
+            return SWAP | mirror | flip;
+        }
+        return t;
+    }
+}
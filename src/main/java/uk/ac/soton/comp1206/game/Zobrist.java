@@ -0,0 +1,102 @@
+package uk.ac.soton.comp1206.game;
+
+/**
+ * Zobrist keys for hashing game states. Every cell, every piece in each of the two piece slots, and every multiplier
+ * has a fixed random 64 bit key, and a state is hashed by XORing together the keys of everything in it. Because XOR
+ * is its own inverse, a BitBoard keeps its hash up to date by toggling a single cell key whenever a cell is filled or
+ * emptied, and two move orders that lead to the same board always give the same hash.
+ *
+ * Only whether a cell is filled is hashed, not its colour, as the colour has no effect on the rules.
+ */
+public class Zobrist {
+
+    /**
+     * The piece slot for the current piece
+     */
+    public static final int CURRENT = 0;
+
+    /**
+     * The piece slot for the following piece
+     */
+    public static final int FOLLOWING = 1;
+
+    /**
+     * The multipliers with their own key, higher multipliers share the last key
+     */
+    private static final int MULTIPLIERS = 64;
+
+    /**
+     * Keys for each piece and rotation in each slot
+     */
+    private static final long[][] PIECE_KEYS = new long[2][GamePiece.PIECES * GamePiece.ROTATIONS];
+
+    /**
+     * Keys for each multiplier
+     */
+    private static final long[] MULTIPLIER_KEYS = new long[MULTIPLIERS];
+
+    static {
+        long seed = 0x7E7EC5L;
+        for (int slot = 0; slot < 2; slot++) {
+            for (int i = 0; i < PIECE_KEYS[slot].length; i++) {
+                PIECE_KEYS[slot][i] = mix(seed++);
+            }
+        }
+        for (int i = 0; i < MULTIPLIERS; i++) {
+            MULTIPLIER_KEYS[i] = mix(seed++);
+        }
+    }
+
+    /**
+     * Get the key of a filled cell. Cell keys are worked out from the position rather than held in a table, so boards
+     * of any size can be hashed.
+     * @param x column
+     * @param y row
+     * @return key
+     */
+    public static long cell(int x, int y) {
+        return mix(((long) y << 32 | x) + 0x5EED);
+    }
+
+    /**
+     * Get the key of a piece in a slot
+     * @param piece the piece
+     * @param slot CURRENT or FOLLOWING
+     * @return key
+     */
+    public static long piece(GamePiece piece, int slot) {
+        return PIECE_KEYS[slot][piece.getType() * GamePiece.ROTATIONS + piece.getRotation()];
+    }
+
+    /**
+     * Get the key of a multiplier
+     * @param multiplier multiplier, 1 or more
+     * @return key
+     */
+    public static long multiplier(int multiplier) {
+        return MULTIPLIER_KEYS[Math.min(multiplier, MULTIPLIERS - 1)];
+    }
+
+    /**
+     * Hash a board together with the current and following pieces
+     * @param board the board
+     * @param current current piece
+     * @param following following piece
+     * @return hash
+     */
+    public static long hash(BitBoard board, GamePiece current, GamePiece following) {
+        return board.getHash() ^ piece(current, CURRENT) ^ piece(following, FOLLOWING);
+    }
+
+    /**
+     * The SplitMix64 finaliser, which spreads any input evenly over all 64 bits
+     * @param value input
+     * @return mixed value
+     */
+    private static long mix(long value) {
+        long z = value * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,105 @@
+package uk.ac.soton.comp1206.network;
+
+/**
+ * A command the TetrECS server sends, and how to decode its messages. Listeners are registered with the Communicator
+ * for a command, and are given its messages already decoded.
+ * @param <T> type of message the command is decoded to
+ */
+public final class Command<T extends Message> {
+
+    /**
+     * The high scores: a list of name:score
+     */
+    public static final Command<Message.Scores> HISCORES = new Command<>("HISCORES", Message.Scores::new);
+
+    /**
+     * Scores in a multiplayer game: a list of name:score:lives
+     */
+    public static final Command<Message.Scores> SCORES = new Command<>("SCORES", Message.Scores::new);
+
+    /**
+     * The channels which can be joined
+     */
+    public static final Command<Message.Names> CHANNELS = new Command<>("CHANNELS", Message.Names::new);
+
+    /**
+     * The players in the current channel
+     */
+    public static final Command<Message.Names> USERS = new Command<>("USERS", Message.Names::new);
+
+    /**
+     * Another player's board
+     */
+    public static final Command<Message.Board> BOARD = new Command<>("BOARD", Message.Board::new);
+
+    /**
+     * The next piece in a multiplayer game
+     */
+    public static final Command<Message.Piece> PIECE = new Command<>("PIECE", Message.Piece::new);
+
+    /**
+     * A chat message
+     */
+    public static final Command<Message.Chat> MSG = new Command<>("MSG", Message.Chat::new);
+
+    /**
+     * Something the server could not do
+     */
+    public static final Command<Message.ServerError> ERROR = new Command<>("ERROR", Message.ServerError::new);
+
+    private static final Command<?>[] COMMANDS = {HISCORES, SCORES, CHANNELS, USERS, BOARD, PIECE, MSG, ERROR};
+
+    /**
+     * Something which decodes the body of a message
+     * @param <T> type of message
+     */
+    private interface Decoder<T> {
+        T decode(String command, TextView body);
+    }
+
+    private final String keyword;
+    private final Decoder<T> decoder;
+
+    private Command(String keyword, Decoder<T> decoder) {
+        this.keyword = keyword;
+        this.decoder = decoder;
+    }
+
+    /**
+     * @return the keyword the server starts these messages with
+     */
+    public String getKeyword() {
+        return keyword;
+    }
+
+    /**
+     * Find the command a message is for, comparing its keyword in place rather than cutting it out
+     * @param message the whole message
+     * @param length length of the keyword at the start of the message
+     * @return the command, or null if it is not one which is decoded
+     */
+    static Command<?> find(String message, int length) {
+        for (Command<?> command : COMMANDS) {
+            if (command.keyword.length() == length && message.startsWith(command.keyword)) {
+                return command;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Decode a message for this command
+     * @param message the whole message
+     * @param bodyStart index of the body, after the keyword and the space following it
+     * @return the decoded message
+     * @throws RuntimeException if the message is malformed
+     */
+    T decode(String message, int bodyStart) {
+        return decoder.decode(keyword, new TextView(message, bodyStart, message.length()));
+    }
+
+    @Override
+    public String toString() {
+        return keyword;
+    }
+}
@@ -1,95 +1,191 @@
 package uk.ac.soton.comp1206.network;
 
 import com.neovisionaries.ws.client.*;
-import javafx.scene.control.Alert;
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyObjectProperty;
+import javafx.beans.property.ReadOnlyObjectWrapper;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import uk.ac.soton.comp1206.event.CommunicationsListener;
+import uk.ac.soton.comp1206.event.MessageListener;
 
-import java.util.ArrayList;
+import java.util.ArrayDeque;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Uses web sockets to talk to a web socket server and relays communication to attached listeners
  *
+ * The connection is made in the background, so creating a Communicator never waits on the network, and the game can
+ * be played without one. If the connection cannot be made or is lost, it is tried again after a delay which doubles
+ * each time, up to a minute. Messages sent while disconnected are kept, up to a limit, and sent once connected.
+ *
+ * Listeners can take every message as text, or register for one Command and be given its messages decoded.
+ *
  * YOU DO NOT NEED TO WORRY ABOUT THIS CLASS! Leave it be :-)
  */
 public class Communicator {
 
     private static final Logger logger = LogManager.getLogger(Communicator.class);
 
+    /**
+     * The state of the connection to the server
+     */
+    public enum State {
+        CONNECTING, CONNECTED, DISCONNECTED
+    }
+
+    /**
+     * How long to wait for the server to answer when connecting, in milliseconds
+     */
+    private static final int CONNECT_TIMEOUT = 5000;
+
+    /**
+     * Delay before the first reconnect, in milliseconds
+     */
+    private static final long FIRST_RETRY = 1000;
+
+    /**
+     * Longest delay between reconnects, in milliseconds
+     */
+    private static final long LAST_RETRY = 60000;
+
+    /**
+     * How many messages to keep while disconnected. Once full, the oldest is dropped.
+     */
+    private static final int MAX_QUEUED = 100;
+
     /**
      * Attached communication listeners listening to messages on this Communicator. Each will be sent any messages.
      */
-    private final List<CommunicationsListener> handlers = new ArrayList<>();
+    private final List<CommunicationsListener> handlers = new CopyOnWriteArrayList<>();
+
+    /**
+     * Listeners for each command, which are sent its messages decoded
+     */
+    private final Map<Command<?>, List<MessageListener<?>>> messageHandlers = new ConcurrentHashMap<>();
+
+    /**
+     * Messages sent while disconnected, oldest first
+     */
+    private final ArrayDeque<String> queue = new ArrayDeque<>();
+
+    private final ReadOnlyObjectWrapper<State> stateProperty = new ReadOnlyObjectWrapper<>(State.CONNECTING);
+
+    private final ScheduledExecutorService reconnector = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Communicator reconnect");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final String server;
 
     private WebSocket ws = null;
+    private State state = State.CONNECTING;
+    private long retryDelay = FIRST_RETRY;
 
     /**
-     * Create a new communicator to the given web socket server
+     * Create a new communicator to the given web socket server, and start connecting to it in the background
      *
      * @param server server to connect to
      */
     public Communicator(String server) {
+        this.server = server;
 
         try {
             var socketFactory = new WebSocketFactory();
-
-            //Connect to the server
+            socketFactory.setConnectionTimeout(CONNECT_TIMEOUT);
             ws = socketFactory.createSocket(server);
-            ws.connect();
-            logger.info("Connected to " + server);
-
-            //When a message is received, call the receive method
-            ws.addListener(new WebSocketAdapter() {
-                @Override
-                public void onTextMessage(WebSocket websocket, String message) throws Exception {
-                    Communicator.this.receive(websocket, message);
-                }
-                @Override
-                public void onPingFrame(WebSocket webSocket, WebSocketFrame webSocketFrame) throws Exception {
-                    logger.info("Ping? Pong!");
-                }
-            });
-
-            //Error handling
-            ws.addListener(new WebSocketAdapter() {
-                @Override
-                public void onTextMessage(WebSocket websocket, String message) throws Exception {
-                    if(message.startsWith("ERROR")) {
-                        logger.error(message);
-                    }
-                }
-                @Override
-                public void handleCallbackError(WebSocket webSocket, Throwable throwable) throws Exception {
-                    logger.error("Callback Error:" + throwable.getMessage());
-                    throwable.printStackTrace();
-                }
-                @Override
-                public void onError(WebSocket webSocket, WebSocketException e) throws Exception {
-                    logger.error("Error:" + e.getMessage());
-                    e.printStackTrace();
-                }
-            });
-
-        } catch (Exception e){
+        } catch (Exception e) {
+            //A malformed address will never connect, so stay offline
             logger.error("Socket error: " + e.getMessage());
-            e.printStackTrace();
-
-            Alert error = new Alert(Alert.AlertType.ERROR,"Unable to communicate with the TetrECS server\n\n" + e.getMessage() + "\n\nPlease ensure you are connected to the VPN");
-            error.showAndWait();
-            System.exit(1);
+            setState(State.DISCONNECTED);
+            return;
         }
+
+        //Connecting, reconnecting and sending queued messages
+        ws.addListener(new WebSocketAdapter() {
+            @Override
+            public void onConnected(WebSocket websocket, Map<String, List<String>> headers) throws Exception {
+                connected(websocket);
+            }
+            @Override
+            public void onConnectError(WebSocket websocket, WebSocketException e) throws Exception {
+                logger.error("Unable to connect to " + server + ": " + e.getMessage());
+                disconnected(websocket);
+            }
+            @Override
+            public void onDisconnected(WebSocket websocket, WebSocketFrame serverCloseFrame,
+                                       WebSocketFrame clientCloseFrame, boolean closedByServer) throws Exception {
+                logger.info("Disconnected from " + server);
+                disconnected(websocket);
+            }
+        });
+
+        //When a message is received, call the receive method
+        ws.addListener(new WebSocketAdapter() {
+            @Override
+            public void onTextMessage(WebSocket websocket, String message) throws Exception {
+                Communicator.this.receive(websocket, message);
+            }
+            @Override
+            public void onPingFrame(WebSocket webSocket, WebSocketFrame webSocketFrame) throws Exception {
+                logger.info("Ping? Pong!");
+            }
+        });
+
+        //Error handling
+        ws.addListener(new WebSocketAdapter() {
+            @Override
+            public void handleCallbackError(WebSocket webSocket, Throwable throwable) throws Exception {
+                logger.error("Callback Error:" + throwable.getMessage());
+                throwable.printStackTrace();
+            }
+            @Override
+            public void onError(WebSocket webSocket, WebSocketException e) throws Exception {
+                logger.error("Error:" + e.getMessage());
+            }
+        });
+
+        logger.info("Connecting to " + server);
+        ws.connectAsynchronously();
     }
 
-    /** Send a message to the server
+    /** Send a message to the server, or keep it to send once connected
      *
      * @param message Message to send
      */
-    public void send(String message) {
-        logger.info("Sending message: " + message);
+    public synchronized void send(String message) {
+        if (state == State.CONNECTED) {
+            logger.info("Sending message: " + message);
+            ws.sendText(message);
+            return;
+        }
+        if (queue.size() >= MAX_QUEUED) {
+            logger.warn("Dropping unsent message: " + queue.pollFirst());
+        }
+        logger.info("Queueing message until connected: " + message);
+        queue.addLast(message);
+    }
 
-        ws.sendText(message);
+    /**
+     * Get the state of the connection, updated on the FX thread
+     * @return state property
+     */
+    public ReadOnlyObjectProperty<State> stateProperty() {
+        return stateProperty.getReadOnlyProperty();
+    }
+
+    /**
+     * @return whether connected to the server right now
+     */
+    public synchronized boolean isConnected() {
+        return state == State.CONNECTED;
     }
 
     /**
@@ -100,14 +196,80 @@ public class Communicator {
         this.handlers.add(listener);
     }
 
+    /**
+     * Add a new listener to receive one command's messages from the server, decoded
+     * @param command the command to listen to
+     * @param listener the listener to add
+     * @param <T> type of message the command is decoded to
+     */
+    public <T extends Message> void addListener(Command<T> command, MessageListener<? super T> listener) {
+        messageHandlers.computeIfAbsent(command, key -> new CopyOnWriteArrayList<>()).add(listener);
+    }
+
     /**
      * Clear all current listeners
      */
     public void clearListeners() {
         this.handlers.clear();
+        this.messageHandlers.clear();
+    }
+
+    /**
+     * Called on the socket's thread once connected: send the queued messages
+     */
+    private synchronized void connected(WebSocket websocket) {
+        if (websocket != ws) {
+            return;
+        }
+        logger.info("Connected to " + server);
+        retryDelay = FIRST_RETRY;
+        setState(State.CONNECTED);
+        if (!queue.isEmpty()) {
+            logger.info("Sending {} queued messages", queue.size());
+            while (!queue.isEmpty()) {
+                ws.sendText(queue.pollFirst());
+            }
+        }
+    }
+
+    /**
+     * Called on the socket's thread when connecting failed or the connection was lost: try again after a delay
+     */
+    private synchronized void disconnected(WebSocket websocket) {
+        if (websocket != ws || state == State.DISCONNECTED) {
+            return;
+        }
+        setState(State.DISCONNECTED);
+        long delay = retryDelay;
+        retryDelay = Math.min(retryDelay * 2, LAST_RETRY);
+        logger.info("Reconnecting to {} in {} s", server, delay / 1000);
+        reconnector.schedule(this::reconnect, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Connect again with a new socket, which keeps the old one's listeners
+     */
+    private synchronized void reconnect() {
+        try {
+            ws = ws.recreate(CONNECT_TIMEOUT);
+        } catch (Exception e) {
+            logger.error("Socket error: " + e.getMessage());
+            reconnector.schedule(this::reconnect, retryDelay, TimeUnit.MILLISECONDS);
+            return;
+        }
+        setState(State.CONNECTING);
+        ws.connectAsynchronously();
+    }
+
+    private void setState(State state) {
+        this.state = state;
+        Platform.runLater(() -> stateProperty.set(state));
     }
 
     /** Receive a message from the server. Relay to any attached listeners
+     *
+     * The command keyword is found once. The message is only decoded if a listener wants that command, and then only
+     * once for all of them.
      *
      * @param websocket the socket
      * @param message the message that was received
@@ -118,6 +280,35 @@ public class Communicator {
         for(CommunicationsListener handler : handlers) {
             handler.receiveCommunication(message);
         }
+
+        int space = message.indexOf(' ');
+        Command<?> command = Command.find(message, space < 0 ? message.length() : space);
+        if (command == null) {
+            return;
+        }
+        if (command == Command.ERROR) {
+            logger.error(message);
+        }
+        List<MessageListener<?>> listeners = messageHandlers.get(command);
+        if (listeners != null && !listeners.isEmpty()) {
+            dispatch(command, message, space < 0 ? message.length() : space + 1, listeners);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends Message> void dispatch(Command<T> command, String message, int bodyStart,
+                                              List<MessageListener<?>> listeners) {
+        T decoded;
+        try {
+            decoded = command.decode(message, bodyStart);
+        } catch (RuntimeException e) {
+            logger.error("Malformed " + command + " message: " + e.getMessage());
+            return;
+        }
+        //Only listeners for this command's type of message are added for it
+        for (MessageListener<?> listener : listeners) {
+            ((MessageListener<T>) listener).receiveMessage(decoded);
+        }
     }
 
 }
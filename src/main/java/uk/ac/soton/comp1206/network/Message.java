@@ -0,0 +1,258 @@
+package uk.ac.soton.comp1206.network;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A message from the TetrECS server, decoded from its text: a command keyword followed by a body.
+ *
+ * The fields of a message are views of the text it was decoded from rather than copies of it. Call toString on one to
+ * keep it as a String.
+ */
+public class Message {
+
+    private final String command;
+    private final CharSequence body;
+
+    /**
+     * Create a new Message
+     * @param command command keyword
+     * @param body everything after the keyword
+     */
+    Message(String command, CharSequence body) {
+        this.command = command;
+        this.body = body;
+    }
+
+    /**
+     * @return command keyword, such as HISCORES
+     */
+    public String getCommand() {
+        return command;
+    }
+
+    /**
+     * @return everything after the keyword
+     */
+    public CharSequence getBody() {
+        return body;
+    }
+
+    @Override
+    public String toString() {
+        return command + " " + body;
+    }
+
+    /**
+     * One player's line in a list of scores
+     */
+    public static class Score {
+        private final CharSequence name;
+        private final int score;
+        private final CharSequence lives;
+
+        private Score(CharSequence name, int score, CharSequence lives) {
+            this.name = name;
+            this.score = score;
+            this.lives = lives;
+        }
+
+        /**
+         * @return player's name
+         */
+        public CharSequence getName() {
+            return name;
+        }
+
+        /**
+         * @return player's score
+         */
+        public int getScore() {
+            return score;
+        }
+
+        /**
+         * @return player's lives, or DEAD, in a multiplayer game, or null in the high scores
+         */
+        public CharSequence getLives() {
+            return lives;
+        }
+    }
+
+    /**
+     * HISCORES or SCORES: one name:score line per player, with :lives on the end in a multiplayer game
+     */
+    public static class Scores extends Message {
+        private final List<Score> scores = new ArrayList<>();
+
+        Scores(String command, TextView body) {
+            super(command, body);
+            for (TextView line : lines(body)) {
+                int colon = line.indexOf(':', 0);
+                int nextColon = line.indexOf(':', colon + 1);
+                if (colon < 0) {
+                    throw new IllegalArgumentException("Score without a colon: " + line);
+                }
+                if (nextColon < 0) {
+                    scores.add(new Score(line.subSequence(0, colon), line.from(colon + 1).toInt(), null));
+                } else {
+                    scores.add(new Score(line.subSequence(0, colon), line.subSequence(colon + 1, nextColon).toInt(),
+                            line.from(nextColon + 1)));
+                }
+            }
+        }
+
+        /**
+         * @return scores in the order the server sent them
+         */
+        public List<Score> getScores() {
+            return Collections.unmodifiableList(scores);
+        }
+    }
+
+    /**
+     * CHANNELS or USERS: one name per line
+     */
+    public static class Names extends Message {
+        private final List<CharSequence> names = new ArrayList<>();
+
+        Names(String command, TextView body) {
+            super(command, body);
+            names.addAll(lines(body));
+        }
+
+        /**
+         * @return names of the channels or players
+         */
+        public List<CharSequence> getNames() {
+            return Collections.unmodifiableList(names);
+        }
+    }
+
+    /**
+     * BOARD: player:value value value..., the value of each cell of another player's board
+     */
+    public static class Board extends Message {
+        private final CharSequence player;
+        private final int[] values;
+
+        Board(String command, TextView body) {
+            super(command, body);
+            int colon = body.indexOf(':', 0);
+            if (colon < 0) {
+                throw new IllegalArgumentException("Board without a player: " + body);
+            }
+            player = body.subSequence(0, colon);
+
+            //Count the values first so they go straight into an array
+            TextView cells = body.from(colon + 1);
+            int count = 0;
+            for (int i = 0; i < cells.length(); i = next(cells, i)) {
+                count++;
+            }
+            values = new int[count];
+            int value = 0;
+            for (int i = 0; i < cells.length(); i = next(cells, i)) {
+                int space = cells.indexOf(' ', i);
+                values[value++] = cells.subSequence(i, space < 0 ? cells.length() : space).toInt();
+            }
+        }
+
+        private static int next(TextView cells, int from) {
+            int space = cells.indexOf(' ', from);
+            return space < 0 ? cells.length() : space + 1;
+        }
+
+        /**
+         * @return name of the player whose board it is
+         */
+        public CharSequence getPlayer() {
+            return player;
+        }
+
+        /**
+         * @return value of each cell, row by row
+         */
+        public int[] getValues() {
+            return values.clone();
+        }
+    }
+
+    /**
+     * PIECE: the value of the next piece in a multiplayer game
+     */
+    public static class Piece extends Message {
+        private final int value;
+
+        Piece(String command, TextView body) {
+            super(command, body);
+            value = body.toInt();
+        }
+
+        /**
+         * @return value of the piece
+         */
+        public int getValue() {
+            return value;
+        }
+    }
+
+    /**
+     * MSG: player:text, a chat message
+     */
+    public static class Chat extends Message {
+        private final CharSequence player;
+        private final CharSequence text;
+
+        Chat(String command, TextView body) {
+            super(command, body);
+            int colon = body.indexOf(':', 0);
+            if (colon < 0) {
+                throw new IllegalArgumentException("Chat without a player: " + body);
+            }
+            player = body.subSequence(0, colon);
+            text = body.from(colon + 1);
+        }
+
+        /**
+         * @return name of the player who sent it
+         */
+        public CharSequence getPlayer() {
+            return player;
+        }
+
+        /**
+         * @return what they said
+         */
+        public CharSequence getText() {
+            return text;
+        }
+    }
+
+    /**
+     * ERROR: a description of something the server could not do
+     */
+    public static class ServerError extends Message {
+        ServerError(String command, TextView body) {
+            super(command, body);
+        }
+    }
+
+    /**
+     * Split a body into its non-empty lines
+     */
+    private static List<TextView> lines(TextView body) {
+        List<TextView> lines = new ArrayList<>();
+        int start = 0;
+        while (start <= body.length()) {
+            int newline = body.indexOf('\n', start);
+            int end = newline < 0 ? body.length() : newline;
+            if (end > start) {
+                lines.add(body.subSequence(start, end));
+            }
+            start = end + 1;
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,78 @@
+package uk.ac.soton.comp1206.network;
+
+/**
+ * A read-only view of part of a String, so a message can be cut into fields without copying each one. toString
+ * copies the characters, for when a real String is needed.
+ */
+final class TextView implements CharSequence {
+
+    private final String text;
+    private final int start;
+    private final int end;
+
+    /**
+     * Create a view of text from start up to, but not including, end
+     * @param text the whole text
+     * @param start index of the first character
+     * @param end index after the last character
+     */
+    TextView(String text, int start, int end) {
+        if (start < 0 || end > text.length() || start > end) {
+            throw new IndexOutOfBoundsException("View " + start + " to " + end + " of " + text.length());
+        }
+        this.text = text;
+        this.start = start;
+        this.end = end;
+    }
+
+    @Override
+    public int length() {
+        return end - start;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length()) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return text.charAt(start + index);
+    }
+
+    @Override
+    public TextView subSequence(int start, int end) {
+        if (start < 0 || end > length() || start > end) {
+            throw new IndexOutOfBoundsException("View " + start + " to " + end + " of " + length());
+        }
+        return new TextView(text, this.start + start, this.start + end);
+    }
+
+    /**
+     * @param from index to start looking at
+     * @return index of the first c at or after from, or -1 if there is none
+     */
+    int indexOf(char c, int from) {
+        int index = text.indexOf(c, start + from);
+        return index < 0 || index >= end ? -1 : index - start;
+    }
+
+    /**
+     * @param from index the view starts at
+     * @return the rest of this view from the given index
+     */
+    TextView from(int from) {
+        return subSequence(from, length());
+    }
+
+    /**
+     * @return the view read as a decimal number
+     * @throws NumberFormatException if it is not one
+     */
+    int toInt() {
+        return Integer.parseInt(text, start, end, 10);
+    }
+
+    @Override
+    public String toString() {
+        return text.substring(start, end);
+    }
+}
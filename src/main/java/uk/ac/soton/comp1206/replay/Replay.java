@@ -0,0 +1,255 @@
+package uk.ac.soton.comp1206.replay;
+
+import uk.ac.soton.comp1206.game.BitBoard;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * A recorded game: the board size and seed it was played with, and every input the player made, so the game can be
+ * played again exactly.
+ *
+ * Each input is a single varint code holding the kind of input in its bottom 2 bits and a payload above them. A click
+ * stores the clicked cell as y * cols + x, a rotation stores the number of clockwise quarter turns, and swaps and the
+ * timer running out share one kind. On a board of up to 32 cells every input fits in one byte. The inputs end with an
+ * END code whose payload is the final score.
+ *
+ * File layout: the magic number "TTRP", a version byte, cols and rows as varints, the seed as 8 bytes, then the inputs.
+ */
+public class Replay {
+
+    /**
+     * "TTRP"
+     */
+    public static final int MAGIC = 0x54545250;
+
+    /**
+     * Format version written by this class
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * Input kind: a block was clicked
+     */
+    public static final int CLICK = 0;
+
+    /**
+     * Input kind: the current piece was rotated
+     */
+    public static final int ROTATE = 1;
+
+    /**
+     * Input kind: SWAP or TIMER, given by the payload
+     */
+    public static final int ACTION = 2;
+
+    /**
+     * End of the inputs, the payload is the final score
+     */
+    public static final int END = 3;
+
+    /**
+     * ACTION payload: the current and following pieces were swapped
+     */
+    public static final int SWAP = 0;
+
+    /**
+     * ACTION payload: the timer ran out
+     */
+    public static final int TIMER = 1;
+
+    private final int cols;
+    private final int rows;
+    private final long seed;
+    private final byte[] inputs;
+    private final int inputCount;
+    private final int score;
+
+    /**
+     * Create a new Replay
+     * @param cols number of columns
+     * @param rows number of rows
+     * @param seed seed of the game's random pieces
+     * @param inputs encoded inputs, not including the END code
+     * @param inputCount number of inputs
+     * @param score final score
+     */
+    public Replay(int cols, int rows, long seed, byte[] inputs, int inputCount, int score) {
+        this.cols = cols;
+        this.rows = rows;
+        this.seed = seed;
+        this.inputs = inputs;
+        this.inputCount = inputCount;
+        this.score = score;
+    }
+
+    /**
+     * Make an input code
+     * @param kind CLICK, ROTATE, ACTION or END
+     * @param payload payload
+     * @return code
+     */
+    public static int code(int kind, int payload) {
+        return payload << 2 | kind;
+    }
+
+    /**
+     * @param code input code
+     * @return kind of input
+     */
+    public static int kind(int code) {
+        return code & 3;
+    }
+
+    /**
+     * @param code input code
+     * @return payload of the input
+     */
+    public static int payload(int code) {
+        return code >>> 2;
+    }
+
+    /**
+     * Check a recorded board size is one the game can be played on. Neither side may be larger than the widest board
+     * a BitBoard holds.
+     * @param cols number of columns
+     * @param rows number of rows
+     * @throws IOException if it is not
+     */
+    static void checkSize(int cols, int rows) throws IOException {
+        if (cols < 1 || cols > BitBoard.MAX_COLS || rows < 1 || rows > BitBoard.MAX_COLS) {
+            throw new IOException("Corrupt replay: board size " + cols + " x " + rows);
+        }
+    }
+
+    /**
+     * Check an input is one ReplayPlayer can apply: a click on a cell of the board, or a swap or the timer running out
+     * @throws IOException if it is not
+     */
+    private static void checkInput(int code, int cells, int index) throws IOException {
+        int payload = payload(code);
+        if ((kind(code) == CLICK && (payload < 0 || payload >= cells))
+                || (kind(code) == ACTION && payload != SWAP && payload != TIMER)) {
+            throw new IOException("Corrupt replay: unknown input " + code + " at input " + index);
+        }
+    }
+
+    /**
+     * Read a replay from a file
+     * @param path file to read
+     * @return replay
+     * @throws IOException if the file cannot be read or is not a valid replay
+     */
+    public static Replay read(Path path) throws IOException {
+        return read(ByteBuffer.wrap(Files.readAllBytes(path)));
+    }
+
+    /**
+     * Read a replay from a buffer, which is left positioned after its END code
+     * @param in buffer positioned at the start of the replay
+     * @return replay
+     * @throws IOException if the buffer does not hold a valid replay
+     */
+    public static Replay read(ByteBuffer in) throws IOException {
+        try {
+            if (in.getInt() != MAGIC) {
+                throw new IOException("Not a replay");
+            }
+            int version = in.get();
+            if (version != VERSION) {
+                throw new IOException("Unsupported replay version " + version);
+            }
+            int cols = Varint.read(in);
+            int rows = Varint.read(in);
+            checkSize(cols, rows);
+            long seed = in.getLong();
+
+            int start = in.position();
+            int end = start;
+            int count = 0;
+            int code = Varint.read(in);
+            while (kind(code) != END) {
+                checkInput(code, cols * rows, count);
+                count++;
+                end = in.position();
+                code = Varint.read(in);
+            }
+            byte[] inputs = new byte[end - start];
+            in.get(start, inputs);
+            return new Replay(cols, rows, seed, inputs, count, payload(code));
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("Truncated or corrupt replay", e);
+        }
+    }
+
+    /**
+     * Write this replay to a file
+     * @param path file to write
+     * @throws IOException if the file cannot be written
+     */
+    public void write(Path path) throws IOException {
+        Files.write(path, toBytes());
+    }
+
+    /**
+     * @return this replay in its file format
+     */
+    public byte[] toBytes() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(inputs.length + 24);
+        ByteBuffer header = ByteBuffer.allocate(5);
+        header.putInt(MAGIC).put((byte) VERSION);
+        out.writeBytes(header.array());
+        Varint.write(out, cols);
+        Varint.write(out, rows);
+        out.writeBytes(ByteBuffer.allocate(8).putLong(seed).array());
+        out.writeBytes(inputs);
+        Varint.write(out, code(END, score));
+        return out.toByteArray();
+    }
+
+    /**
+     * @return number of columns
+     */
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * @return number of rows
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * @return seed of the game's random pieces
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * @return the encoded inputs, as a read only buffer positioned at the first input
+     */
+    public ByteBuffer getInputs() {
+        return ByteBuffer.wrap(inputs).asReadOnlyBuffer();
+    }
+
+    /**
+     * @return number of inputs
+     */
+    public int getInputCount() {
+        return inputCount;
+    }
+
+    /**
+     * @return final score recorded with the game
+     */
+    public int getScore() {
+        return score;
+    }
+}
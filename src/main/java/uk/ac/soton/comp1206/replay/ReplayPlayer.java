@@ -0,0 +1,86 @@
+package uk.ac.soton.comp1206.replay;
+
+import uk.ac.soton.comp1206.game.GameEngine;
+import uk.ac.soton.comp1206.game.RepeatableRandom;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Plays a Replay back on a headless GameEngine as fast as the engine allows. The engine is set up the same way Game
+ * sets it up, with the replay's seed and the first piece dealt, so feeding it the same inputs reaches the same state.
+ */
+public class ReplayPlayer {
+
+    /**
+     * Create an engine in the state a recorded game started in
+     * @param replay the replay
+     * @return engine ready for the first input
+     */
+    public static GameEngine start(Replay replay) {
+        return start(replay.getCols(), replay.getRows(), replay.getSeed());
+    }
+
+    /**
+     * Create an engine in the state a recorded game started in
+     * @param cols number of columns
+     * @param rows number of rows
+     * @param seed seed of the game's random pieces
+     * @return engine ready for the first input
+     */
+    public static GameEngine start(int cols, int rows, long seed) {
+        var engine = new GameEngine(cols, rows, new RepeatableRandom(seed));
+        //Game deals a piece when it starts
+        engine.nextPiece();
+        return engine;
+    }
+
+    /**
+     * Play every input of a replay
+     * @param replay the replay
+     * @return the engine after the last input
+     */
+    public static GameEngine play(Replay replay) {
+        var engine = start(replay);
+        ByteBuffer inputs = replay.getInputs();
+        while (inputs.hasRemaining()) {
+            apply(engine, Varint.read(inputs));
+        }
+        return engine;
+    }
+
+    /**
+     * Play a replay and check it reaches the score it was recorded with
+     * @param replay the replay
+     * @return true if the scores match
+     */
+    public static boolean verify(Replay replay) {
+        return play(replay).getScore() == replay.getScore();
+    }
+
+    /**
+     * Apply a single input to an engine
+     * @param engine engine to play on
+     * @param code input code
+     * @throws IllegalArgumentException if the code is not a valid input
+     */
+    public static void apply(GameEngine engine, int code) {
+        int payload = Replay.payload(code);
+        switch (Replay.kind(code)) {
+            case Replay.CLICK -> {
+                int cols = engine.getBoard().getCols();
+                engine.place(payload % cols, payload / cols);
+            }
+            case Replay.ROTATE -> engine.rotateCurrentPiece(payload);
+            case Replay.ACTION -> {
+                if (payload == Replay.SWAP) {
+                    engine.swapCurrentPiece();
+                } else if (payload == Replay.TIMER) {
+                    engine.timerExpired();
+                } else {
+                    throw new IllegalArgumentException("Unknown action " + payload);
+                }
+            }
+            default -> throw new IllegalArgumentException("Unexpected input code " + code);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package uk.ac.soton.comp1206.replay;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * A ReplayRecorder collects the inputs of a game as they are made, encoded as described in Replay, and produces the
+ * Replay when the game finishes.
+ */
+public class ReplayRecorder {
+
+    private final int cols;
+    private final int rows;
+    private final long seed;
+    private final ByteArrayOutputStream inputs = new ByteArrayOutputStream(256);
+    private int inputCount = 0;
+    private Replay replay;
+
+    /**
+     * Create a new ReplayRecorder for a game
+     * @param cols number of columns
+     * @param rows number of rows
+     * @param seed seed of the game's random pieces
+     */
+    public ReplayRecorder(int cols, int rows, long seed) {
+        this.cols = cols;
+        this.rows = rows;
+        this.seed = seed;
+    }
+
+    /**
+     * Record a block being clicked, whether or not the piece could be placed there
+     * @param x column
+     * @param y row
+     */
+    public void click(int x, int y) {
+        add(Replay.code(Replay.CLICK, y * cols + x));
+    }
+
+    /**
+     * Record the current piece being rotated
+     * @param rotations number of clockwise rotations, or anticlockwise if negative
+     */
+    public void rotate(int rotations) {
+        add(Replay.code(Replay.ROTATE, rotations & 3));
+    }
+
+    /**
+     * Record the current and following pieces being swapped
+     */
+    public void swap() {
+        add(Replay.code(Replay.ACTION, Replay.SWAP));
+    }
+
+    /**
+     * Record the timer running out
+     */
+    public void timerExpired() {
+        add(Replay.code(Replay.ACTION, Replay.TIMER));
+    }
+
+    /**
+     * Finish recording. Later inputs are ignored.
+     * @param score final score of the game
+     * @return the recorded replay
+     */
+    public Replay finish(int score) {
+        if (replay == null) {
+            replay = new Replay(cols, rows, seed, inputs.toByteArray(), inputCount, score);
+        }
+        return replay;
+    }
+
+    /**
+     * @return true once finish has been called
+     */
+    public boolean isFinished() {
+        return replay != null;
+    }
+
+    /**
+     * @return number of inputs recorded
+     */
+    public int getInputCount() {
+        return inputCount;
+    }
+
+    private void add(int code) {
+        if (replay != null) {
+            return;
+        }
+        Varint.write(inputs, code);
+        inputCount++;
+    }
+}
@@ -0,0 +1,349 @@
+package uk.ac.soton.comp1206.replay;
+
+import uk.ac.soton.comp1206.game.BitBoard;
+import uk.ac.soton.comp1206.game.GameEngine;
+import uk.ac.soton.comp1206.game.GamePiece;
+import uk.ac.soton.comp1206.game.RepeatableRandom;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A replay file which can jump to any input without playing the game from the start. After every interval inputs it
+ * holds a snapshot of the whole game state, so reaching any input takes at most interval inputs of replaying from
+ * the snapshot before it.
+ *
+ * The file starts with an ordinary Replay, so Replay.read can still read it, followed by the snapshots, an index of
+ * where each snapshot and the input after it are, and a fixed size trailer at the very end pointing to the index.
+ *
+ * Files are opened by memory mapping them, so the header, trailer and index are read in place and only the
+ * snapshot and inputs needed to reach an input are decoded. Scanning many files does not copy them onto the heap.
+ * Every offset in the index is checked when the file is opened, and a corrupt snapshot or input is reported as an
+ * IOException when it is reached, so one bad file never stops a scan of the rest.
+ *
+ * Snapshot layout: random generator state (8 bytes), score, lives, level and multiplier (4 bytes each), current and
+ * following pieces as piece number * 4 + rotation (1 byte each), then the cells in row order packed two to a byte,
+ * as every cell value fits in 4 bits.
+ */
+public class SeekableReplay {
+
+    /**
+     * "TTRX", the last 4 bytes of a file with snapshots
+     */
+    public static final int TRAILER_MAGIC = 0x54545258;
+
+    /**
+     * inputs, score, interval, snapshots, index offset, then the magic number
+     */
+    private static final int TRAILER_SIZE = 6 * 4;
+
+    /**
+     * input number, input offset and snapshot offset
+     */
+    private static final int INDEX_ENTRY_SIZE = 3 * 4;
+
+    private final ByteBuffer file;
+    private final int cols;
+    private final int rows;
+    private final long seed;
+    private final int inputsStart;
+    private final int inputCount;
+    private final int score;
+    private final int interval;
+    private final int snapshotCount;
+    private final int indexOffset;
+
+    private SeekableReplay(ByteBuffer file) throws IOException {
+        this.file = file;
+        try {
+            ByteBuffer header = file.duplicate();
+            if (header.getInt() != Replay.MAGIC || header.get() != Replay.VERSION) {
+                throw new IOException("Not a replay");
+            }
+            cols = Varint.read(header);
+            rows = Varint.read(header);
+            Replay.checkSize(cols, rows);
+            seed = header.getLong();
+            inputsStart = header.position();
+
+            int trailer = file.limit() - TRAILER_SIZE;
+            if (!hasIndex(file)) {
+                throw new IOException("Replay has no snapshot index");
+            }
+            if (trailer < inputsStart) {
+                throw new IOException("Corrupt snapshot index");
+            }
+            inputCount = file.getInt(trailer);
+            score = file.getInt(trailer + 4);
+            interval = file.getInt(trailer + 8);
+            snapshotCount = file.getInt(trailer + 12);
+            indexOffset = file.getInt(trailer + 16);
+            if (inputCount < 0 || interval < 1 || snapshotCount < 0 || snapshotCount > inputCount / interval
+                    || indexOffset < inputsStart || indexOffset + (long) snapshotCount * INDEX_ENTRY_SIZE > trailer) {
+                throw new IOException("Corrupt snapshot index");
+            }
+            checkIndex();
+        } catch (RuntimeException e) {
+            throw new IOException("Truncated or corrupt replay", e);
+        }
+    }
+
+    /**
+     * Check every index entry points at a snapshot and inputs inside the file, so seek can trust them
+     */
+    private void checkIndex() throws IOException {
+        int snapshotSize = snapshotSize(cols, rows);
+        for (int snapshot = 1; snapshot <= snapshotCount; snapshot++) {
+            int entry = indexOffset + (snapshot - 1) * INDEX_ENTRY_SIZE;
+            int input = file.getInt(entry);
+            int inputOffset = file.getInt(entry + 4);
+            int snapshotOffset = file.getInt(entry + 8);
+            if (input != snapshot * interval || inputOffset < inputsStart || inputOffset > indexOffset
+                    || snapshotOffset < inputsStart || snapshotOffset + (long) snapshotSize > indexOffset) {
+                throw new IOException("Corrupt snapshot index entry " + snapshot);
+            }
+        }
+    }
+
+    /**
+     * Open a replay file with snapshots by memory mapping it
+     * @param path file to open
+     * @return the replay
+     * @throws IOException if the file cannot be read, is corrupt or has no snapshot index
+     */
+    public static SeekableReplay open(Path path) throws IOException {
+        SeekableReplay replay = openIfIndexed(path);
+        if (replay == null) {
+            throw new IOException("Replay has no snapshot index");
+        }
+        return replay;
+    }
+
+    /**
+     * Open a replay file for seeking if it has snapshots, by memory mapping it
+     * @param path file to open
+     * @return the replay, or null if it is an ordinary replay with no snapshot index
+     * @throws IOException if the file cannot be read or is corrupt
+     */
+    public static SeekableReplay openIfIndexed(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            //The mapping stays valid after the channel is closed
+            ByteBuffer file = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return hasIndex(file) ? new SeekableReplay(file) : null;
+        }
+    }
+
+    /**
+     * @return whether a file ends with the trailer of a snapshot index
+     */
+    private static boolean hasIndex(ByteBuffer file) {
+        return file.limit() >= TRAILER_SIZE && file.getInt(file.limit() - 4) == TRAILER_MAGIC;
+    }
+
+    /**
+     * Write a replay with a snapshot after every interval inputs. The snapshots are made by playing the replay.
+     * @param replay the replay
+     * @param interval inputs between snapshots
+     * @param path file to write
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(Replay replay, int interval, Path path) throws IOException {
+        Files.write(path, toBytes(replay, interval));
+    }
+
+    /**
+     * Encode a replay with a snapshot after every interval inputs
+     * @param replay the replay
+     * @param interval inputs between snapshots
+     * @return the file contents
+     */
+    public static byte[] toBytes(Replay replay, int interval) {
+        if (interval < 1) {
+            throw new IllegalArgumentException("Snapshot interval must be at least 1");
+        }
+        byte[] start = replay.toBytes();
+        int inputsStart = 4 + 1 + Varint.size(replay.getCols()) + Varint.size(replay.getRows()) + 8;
+        int snapshots = replay.getInputCount() / interval;
+        int snapshotSize = snapshotSize(replay.getCols(), replay.getRows());
+
+        ByteBuffer out = ByteBuffer.allocate(start.length + snapshots * (snapshotSize + INDEX_ENTRY_SIZE) + TRAILER_SIZE);
+        out.put(start);
+        ByteBuffer index = ByteBuffer.allocate(snapshots * INDEX_ENTRY_SIZE);
+
+        GameEngine engine = ReplayPlayer.start(replay);
+        ByteBuffer inputs = replay.getInputs();
+        for (int input = 1; input <= snapshots * interval; input++) {
+            ReplayPlayer.apply(engine, Varint.read(inputs));
+            if (input % interval == 0) {
+                index.putInt(input).putInt(inputsStart + inputs.position()).putInt(out.position());
+                writeSnapshot(out, engine);
+            }
+        }
+
+        int indexOffset = out.position();
+        out.put(index.array());
+        out.putInt(replay.getInputCount()).putInt(replay.getScore()).putInt(interval).putInt(snapshots)
+                .putInt(indexOffset).putInt(TRAILER_MAGIC);
+        return out.array();
+    }
+
+    /**
+     * Get the game state after a number of inputs, by restoring the nearest snapshot before it and playing the inputs
+     * after that
+     * @param input number of inputs to have played, 0 for the start of the game
+     * @return a new engine in that state
+     * @throws IndexOutOfBoundsException if input is negative or more than the number of inputs
+     * @throws IOException if the snapshot or inputs needed are corrupt
+     */
+    public GameEngine seek(int input) throws IOException {
+        if (input < 0 || input > inputCount) {
+            throw new IndexOutOfBoundsException("Input " + input + " of " + inputCount);
+        }
+        int snapshot = Math.min(input / interval, snapshotCount);
+
+        GameEngine engine;
+        int played;
+        ByteBuffer inputs = file.duplicate().limit(indexOffset);
+        if (snapshot == 0) {
+            engine = ReplayPlayer.start(cols, rows, seed);
+            played = 0;
+            inputs.position(inputsStart);
+        } else {
+            //Checked when the file was opened
+            int entry = indexOffset + (snapshot - 1) * INDEX_ENTRY_SIZE;
+            played = file.getInt(entry);
+            inputs.position(file.getInt(entry + 4));
+            engine = readSnapshot(file.getInt(entry + 8));
+        }
+
+        try {
+            for (; played < input; played++) {
+                ReplayPlayer.apply(engine, Varint.read(inputs));
+            }
+        } catch (RuntimeException e) {
+            throw new IOException("Corrupt replay input " + (played + 1), e);
+        }
+        return engine;
+    }
+
+    /**
+     * Read the whole replay onto the heap
+     * @return the replay
+     * @throws IOException if the replay is corrupt
+     */
+    public Replay toReplay() throws IOException {
+        return Replay.read(file.duplicate());
+    }
+
+    /**
+     * @return number of columns
+     */
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * @return number of rows
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * @return seed of the game's random pieces
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * @return number of inputs
+     */
+    public int getInputCount() {
+        return inputCount;
+    }
+
+    /**
+     * @return final score recorded with the game
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * @return inputs between snapshots
+     */
+    public int getInterval() {
+        return interval;
+    }
+
+    /**
+     * @return number of snapshots
+     */
+    public int getSnapshotCount() {
+        return snapshotCount;
+    }
+
+    private static int snapshotSize(int cols, int rows) {
+        return 8 + 4 * 4 + 2 + (cols * rows + 1) / 2;
+    }
+
+    private static void writeSnapshot(ByteBuffer out, GameEngine engine) {
+        out.putLong(((RepeatableRandom) engine.getRandom()).getState());
+        out.putInt(engine.getScore()).putInt(engine.getLives()).putInt(engine.getLevel()).putInt(engine.getMultiplier());
+        out.put((byte) pieceIndex(engine.getCurrentPiece())).put((byte) pieceIndex(engine.getFollowingPiece()));
+
+        BitBoard board = engine.getBoard();
+        int cells = board.getCols() * board.getRows();
+        for (int i = 0; i < cells; i += 2) {
+            int low = cellValue(board, i);
+            int high = i + 1 < cells ? cellValue(board, i + 1) : 0;
+            out.put((byte) (high << 4 | low));
+        }
+    }
+
+    private GameEngine readSnapshot(int offset) throws IOException {
+        RepeatableRandom random = new RepeatableRandom(seed);
+        GameEngine engine = new GameEngine(cols, rows, random);
+        ByteBuffer in = file.duplicate().position(offset);
+        random.setState(in.getLong());
+        int score = in.getInt();
+        int lives = in.getInt();
+        int level = in.getInt();
+        int multiplier = in.getInt();
+        GamePiece current = piece(in.get(), offset);
+        GamePiece following = piece(in.get(), offset);
+        engine.restore(score, lives, level, multiplier, current, following);
+
+        BitBoard board = engine.getBoard();
+        int cells = cols * rows;
+        for (int i = 0; i < cells; i += 2) {
+            int packed = in.get();
+            board.set(i % cols, i / cols, packed & 0xF);
+            if (i + 1 < cells) {
+                board.set((i + 1) % cols, (i + 1) / cols, (packed >>> 4) & 0xF);
+            }
+        }
+        return engine;
+    }
+
+    private static int cellValue(BitBoard board, int cell) {
+        return board.get(cell % board.getCols(), cell / board.getCols());
+    }
+
+    private static int pieceIndex(GamePiece piece) {
+        return piece.getType() * GamePiece.ROTATIONS + piece.getRotation();
+    }
+
+    private static GamePiece piece(int index, int offset) throws IOException {
+        if (index < 0 || index >= GamePiece.PIECES * GamePiece.ROTATIONS) {
+            throw new IOException("Corrupt snapshot at " + offset + ": no piece " + index);
+        }
+        return GamePiece.createPiece(index / GamePiece.ROTATIONS, index % GamePiece.ROTATIONS);
+    }
+}
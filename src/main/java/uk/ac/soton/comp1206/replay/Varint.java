@@ -0,0 +1,57 @@
+package uk.ac.soton.comp1206.replay;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Reads and writes unsigned variable length integers, 7 bits per byte with the top bit set on every byte but the
+ * last. Numbers below 128 take a single byte.
+ */
+public class Varint {
+
+    /**
+     * Write a number
+     * @param out stream to write to
+     * @param value number, treated as unsigned
+     */
+    public static void write(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    /**
+     * Read a number
+     * @param in buffer to read from, positioned at the start of the number
+     * @return number
+     * @throws BufferUnderflowException if the buffer ends part way through the number
+     * @throws IllegalArgumentException if the number is longer than 5 bytes
+     */
+    public static int read(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+
+    /**
+     * @param value number, treated as unsigned
+     * @return number of bytes the number takes
+     */
+    public static int size(int value) {
+        int bytes = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            bytes++;
+        }
+        return bytes;
+    }
+}
@@ -15,6 +15,9 @@ public abstract class BaseScene {
     protected GamePane root;
     protected Scene scene;
 
+    private volatile boolean prepared = false;
+    private boolean built = false;
+
     /**
      * Create a new scene, passing in the GameWindow the scene will be displayed in
      * @param gameWindow the game window
@@ -33,6 +36,72 @@ public abstract class BaseScene {
      */
     public abstract void build();
 
+    /**
+     * Prepare anything the scene needs which does not touch the scene graph, such as the game model. Called before
+     * build, and may be called on a background thread when the scene is prebuilt.
+     */
+    public void prepare() {
+    }
+
+    /**
+     * Called each time the scene is about to be shown, after it has been built, to put it into its starting state
+     */
+    public void reset() {
+    }
+
+    /**
+     * Called each time the scene stops being shown, before the next scene is shown, to stop anything it has running,
+     * such as timers and animations
+     */
+    public void leave() {
+    }
+
+    /**
+     * Whether this scene can be kept and shown again rather than built afresh each time
+     * @return true if the scene can be reused
+     */
+    public boolean isReusable() {
+        return false;
+    }
+
+    /**
+     * The scene most likely to be shown after this one, which is prebuilt while this one is shown
+     * @return kind of scene, or null for none
+     */
+    public Class<? extends BaseScene> getLikelyNextScene() {
+        return null;
+    }
+
+    /**
+     * Prepare the scene, unless that has already been done
+     */
+    public void prepareIfNeeded() {
+        if (!prepared) {
+            prepare();
+            prepared = true;
+        }
+    }
+
+    /**
+     * Prepare and build the layout and its JavaFX scene, unless that has already been done
+     */
+    public void buildIfNeeded() {
+        if (built) {
+            return;
+        }
+        prepareIfNeeded();
+        build();
+        setScene();
+        built = true;
+    }
+
+    /**
+     * @return whether the scene has been built
+     */
+    public boolean isBuilt() {
+        return built;
+    }
+
     /**
      * Create a new JavaFX scene using the root contained within this scene
      * @return JavaFX scene
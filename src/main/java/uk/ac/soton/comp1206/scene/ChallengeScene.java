@@ -6,6 +6,7 @@ import javafx.animation.KeyValue;
 import javafx.animation.Timeline;
 import javafx.application.Platform;
 import javafx.geometry.Insets;
+import javafx.geometry.Pos;
 import javafx.scene.control.Label;
 import javafx.scene.input.KeyCode;
 import javafx.scene.input.MouseButton;
@@ -19,14 +20,24 @@ import org.apache.logging.log4j.Logger;
 import uk.ac.soton.comp1206.component.GameBlock;
 import uk.ac.soton.comp1206.component.GameBlockCoordinate;
 import uk.ac.soton.comp1206.component.GameBoard;
+import uk.ac.soton.comp1206.component.PerformanceMonitor;
 import uk.ac.soton.comp1206.component.PieceBoard;
 import uk.ac.soton.comp1206.game.Game;
 import uk.ac.soton.comp1206.game.GamePiece;
 import uk.ac.soton.comp1206.game.Grid;
 import uk.ac.soton.comp1206.game.Multimedia;
+import uk.ac.soton.comp1206.game.MusicEngine;
+import uk.ac.soton.comp1206.replay.Replay;
+import uk.ac.soton.comp1206.replay.ReplayRecorder;
+import uk.ac.soton.comp1206.replay.SeekableReplay;
+import uk.ac.soton.comp1206.ui.BackgroundImages;
 import uk.ac.soton.comp1206.ui.GamePane;
 import uk.ac.soton.comp1206.ui.GameWindow;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Set;
 
 /**
@@ -35,6 +46,10 @@ import java.util.Set;
 public class ChallengeScene extends BaseScene {
 
     private static final Logger logger = LogManager.getLogger(MenuScene.class);
+    /**
+     * saved replays hold a snapshot of the game after every this many inputs, so they can be viewed from any point
+     */
+    private static final int REPLAY_SNAPSHOT_INTERVAL = 64;
     /**
      * game
      */
@@ -58,7 +73,24 @@ public class ChallengeScene extends BaseScene {
      * create rectangle with initial width of 200
      */
     private Rectangle rectangle = new Rectangle(800, 50, Color.GREEN);
+    /**
+     * the countdown timeline, when it finishes the player loses a life
+     */
+    private Timeline timeline;
+    /**
+     * turns the countdown from green to red, once the countdown is under way
+     */
+    private FillTransition fillTransition;
+    /**
+     * whether the player has left this scene, after which its game must not carry on
+     */
+    private boolean left = false;
     private GameBlock block;
+    /**
+     * whether the piece preview is shown at x and y, which it is while the mouse is over the board or after a key
+     * has moved it
+     */
+    private boolean cursorShown = false;
     /**
      * to keep track of the x when positioning and dropping pieces via the keyboard
      */
@@ -67,6 +99,14 @@ public class ChallengeScene extends BaseScene {
      * to keep track of the y when positioning and dropping pieces via the keyboard
      */
     private int y = 0;
+    /**
+     * measures frame rate and repaints while the overlay is shown
+     */
+    private PerformanceMonitor performanceMonitor;
+    /**
+     * shows the performance numbers, toggled with F3
+     */
+    private Label performanceLabel;
 
     /**
      * Create a new Single Player challenge scene
@@ -84,29 +124,25 @@ public class ChallengeScene extends BaseScene {
     public void build() {
         logger.info("Building " + this.getClass().getName());
 
-        setupGame();
-
-        // stops any other audio playing
-        Multimedia.stopAudio();
-        // plays game music
-        Multimedia.playMusic("game_start.wav");
-
         root = new GamePane(gameWindow.getWidth(),gameWindow.getHeight());
 
         var challengePane = new StackPane();
         challengePane.setMaxWidth(gameWindow.getWidth());
         challengePane.setMaxHeight(gameWindow.getHeight());
-        challengePane.getStyleClass().add("menu-background");
+        BackgroundImages.apply(challengePane, BackgroundImages.MENU, gameWindow.getWidth(), gameWindow.getHeight(),
+                root.scalarProperty());
         root.getChildren().add(challengePane);
 
         mainPane = new BorderPane();
         challengePane.getChildren().add(mainPane);
 
-        board = new GameBoard(game.getGrid(),gameWindow.getWidth()/2,gameWindow.getWidth()/2);
+        board = new GameBoard(game.getGrid(),gameWindow.getWidth()/2,gameWindow.getWidth()/2, true);
 
         mainPane.setCenter(board);
         //Handle block on gameboard grid being clicked
         board.setOnBlockClick(this::blockClicked);
+        //Preview the current piece where the mouse is
+        board.setOnBlockHover(this::blockHovered);
 
         Label livesLabel = new Label("Lives left = 3");
         livesLabel.textProperty().bind(game.getLives().asString("Lives: %d"));
@@ -137,25 +173,21 @@ public class ChallengeScene extends BaseScene {
         incoming.setStyle("-fx-text-fill: white;");
         incoming.getStyleClass().add("score");
 
-        pieceBoard = new PieceBoard(new Grid(3, 3), 150, 150);
+        pieceBoard = new PieceBoard(new Grid(3, 3), 150, 150, true);
         pieceBoard.setOnMouseClicked(event -> {
             if (event.getButton() == MouseButton.PRIMARY) {
                 //Left-click detected so rotates piece
                 game.rotateCurrentPiece();
-                GamePiece piece = game.getCurrentPiece();
-                pieceBoard.displayPiece(piece);
+                showPiece(game.getCurrentPiece(), game.getFollowingPiece());
             }
         });
 
-        pieceBoard2 = new PieceBoard(new Grid(3, 3), 100, 100);
+        pieceBoard2 = new PieceBoard(new Grid(3, 3), 100, 100, true);
         pieceBoard2.setOnMouseClicked(event -> {
             if (event.getButton() == MouseButton.PRIMARY) {
                 //Left-click detected so swaps pieces on both pieceBoards
                 game.swapCurrentPiece();
-                GamePiece piece = game.getCurrentPiece();
-                pieceBoard.displayPiece(piece);
-                GamePiece piece2 = game.getFollowingPiece();
-                pieceBoard2.displayPiece(piece2);
+                showPiece(game.getCurrentPiece(), game.getFollowingPiece());
             }
         });
 
@@ -170,56 +202,125 @@ public class ChallengeScene extends BaseScene {
         mainPane.setRight(b);
 
 //         create timeline animation
-        Timeline timeline = new Timeline();
+        timeline = new Timeline();
 
         KeyFrame shrinkKeyFrame = new KeyFrame(Duration.seconds(game.getTimerDelay()), new KeyValue(rectangle.widthProperty(), 0));
         KeyFrame newColour = new KeyFrame(Duration.seconds(game.getTimerDelay()), e -> changeTransition());
 
         timeline.getKeyFrames().add(shrinkKeyFrame);
         timeline.getKeyFrames().add(newColour);
-        timeline.setOnFinished(e -> {
-            // decrease lives by 1 when animation finishes
-            game.setLives(game.getLives().get() - 1);
-            game.nextPiece();
-            game.resetMulitplier();
-
-            // check if lives are above 0 before restarting animation
-            if (game.getLives().get() > 0) {
-                // reset rectangle's width
-                rectangle.setWidth(800);
-                timeline.playFromStart();
-            }
-            // if lives is 0 or less then game is finished
-            if (game.getLives().get() <= 0) {
-                Platform.runLater(this::gameFinished);
-            }
-        });
-        // start animation
-        timeline.play();
+        timeline.setOnFinished(e -> timerFinished());
         mainPane.setBottom(rectangle);
 
+        performanceLabel = new Label();
+        performanceLabel.setStyle("-fx-text-fill: white; -fx-background-color: rgba(0, 0, 0, 0.6); -fx-padding: 5;");
+        performanceLabel.setFont(new Font(14));
+        performanceLabel.setMouseTransparent(true);
+        performanceLabel.setVisible(false);
+        StackPane.setAlignment(performanceLabel, Pos.TOP_LEFT);
+        challengePane.getChildren().add(performanceLabel);
 
     }
 
+    /**
+     * decreases lives by 1 when the countdown finishes, then restarts it or ends the game
+     */
+    private void timerFinished() {
+        if (left) {
+            return;
+        }
+        game.timerExpired();
+
+        // check if lives are above 0 before restarting animation
+        if (game.getLives().get() > 0) {
+            // reset rectangle's width
+            rectangle.setWidth(800);
+            timeline.playFromStart();
+            checkStuck();
+        }
+        // if lives is 0 or less then game is finished
+        if (game.getLives().get() <= 0) {
+            Platform.runLater(this::gameFinished);
+        }
+    }
+
+    /**
+     * if no piece can be placed anywhere, even after rotating or swapping, there is no point waiting for the
+     * countdown so it finishes straight away
+     */
+    private void checkStuck() {
+        if (!game.hasLegalMove()) {
+            logger.info("No legal move left, ending countdown");
+            timeline.stop();
+            Platform.runLater(this::timerFinished);
+        }
+    }
+
     /**
      * changes the animated countdown from green to red as urgency increases
      */
     public void changeTransition() {
         logger.info("New trans");
-        FillTransition fillTransition = new FillTransition(Duration.seconds(game.getTimerDelay()), rectangle);
+        fillTransition = new FillTransition(Duration.seconds(game.getTimerDelay()), rectangle);
         fillTransition.setFromValue(Color.GREEN);
         fillTransition.setToValue(Color.RED);
         fillTransition.play();
     }
 
+    /**
+     * shows or hides the performance overlay, measuring only while it is shown
+     */
+    private void togglePerformanceOverlay() {
+        performanceLabel.setVisible(performanceMonitor.toggle());
+    }
+
     /**
      * when game is over, the ScoresScene is shown
      */
     public void gameFinished() {
+        if (left) {
+            return;
+        }
         logger.info("Game over.");
+        saveReplay();
         gameWindow.loadScene(new ScoresScene(gameWindow, game));
     }
 
+    /**
+     * stops the countdown, its colour change and the performance monitor when the player leaves, so the game does not
+     * carry on losing lives behind whichever scene is shown next
+     */
+    @Override
+    public void leave() {
+        left = true;
+        timeline.stop();
+        if (fillTransition != null) {
+            fillTransition.stop();
+        }
+        if (performanceMonitor != null) {
+            performanceMonitor.stop();
+        }
+    }
+
+    /**
+     * writes the recorded inputs of this game to the replays folder, once
+     */
+    private void saveReplay() {
+        ReplayRecorder recorder = game.getRecorder();
+        if (recorder == null || recorder.isFinished()) {
+            return;
+        }
+        Replay replay = recorder.finish(game.getScore().get());
+        Path path = Paths.get("replays", "challenge-" + System.currentTimeMillis() + ".ttr");
+        try {
+            Files.createDirectories(path.getParent());
+            SeekableReplay.write(replay, REPLAY_SNAPSHOT_INTERVAL, path);
+            logger.info("Saved replay of " + replay.getInputCount() + " inputs to " + path);
+        } catch (IOException e) {
+            logger.error("Could not save replay: " + e.getMessage());
+        }
+    }
+
     /**
      * does a fade out animation on the lines that were cleared in the board
      * @param clearedBlocks
@@ -237,6 +338,44 @@ public class ChallengeScene extends BaseScene {
         logger.info("Displaying piece: " + piece.toString());
         pieceBoard.displayPiece(piece);
         pieceBoard2.displayPiece(piece2);
+        updateGhost();
+    }
+
+    /**
+     * moves the piece preview to the block under the mouse, or hides it when the mouse leaves the board
+     * @param hovered the block under the mouse, or null
+     */
+    private void blockHovered(GameBlock hovered) {
+        if (hovered == null) {
+            cursorShown = false;
+            board.clearGhost();
+            return;
+        }
+        x = hovered.getX();
+        y = hovered.getY();
+        cursorShown = true;
+        updateGhost();
+    }
+
+    /**
+     * moves the piece preview with the keyboard, staying on the board
+     * @param dx columns to move
+     * @param dy rows to move
+     */
+    private void moveCursor(int dx, int dy) {
+        x = Math.max(0, Math.min(game.getCols() - 1, x + dx));
+        y = Math.max(0, Math.min(game.getRows() - 1, y + dy));
+        cursorShown = true;
+        updateGhost();
+    }
+
+    /**
+     * draws the current piece at x and y on the board's overlay, tinted by whether it can be placed there
+     */
+    private void updateGhost() {
+        if (cursorShown) {
+            board.showGhost(game.getCurrentPiece(), x, y, game.canPlayCurrentPiece(x, y));
+        }
     }
 
     /**
@@ -244,7 +383,19 @@ public class ChallengeScene extends BaseScene {
      * @param gameBlock the Game Block that was clocked
      */
     private void blockClicked(GameBlock gameBlock) {
+        //Both the mouse and the keyboard come through here, so both are timed
+        PerformanceMonitor.clicked();
         game.blockClicked(gameBlock);
+        updateGhost();
+        checkStuck();
+    }
+
+    /**
+     * Set up the game before the scene is built, which can be done away from the FX thread
+     */
+    @Override
+    public void prepare() {
+        setupGame();
     }
 
     /**
@@ -253,8 +404,9 @@ public class ChallengeScene extends BaseScene {
     public void setupGame() {
         logger.info("Starting a new challenge");
 
-        //Start new game
+        //Start new game, recording every input so it can be replayed
         game = new Game(5, 5);
+        game.setRecorder(new ReplayRecorder(game.getCols(), game.getRows(), game.getSeed()));
     }
 
     /**
@@ -263,60 +415,47 @@ public class ChallengeScene extends BaseScene {
      */
     @Override
     public void initialise() {
+        if (left) {
+            return;
+        }
         logger.info("Initialising Challenge");
+
+        // fades from the menu music to the game music
+        Multimedia.playMusic(MusicEngine.GAME);
+
         game.start();
+        // start animation
+        timeline.play();
+
+        performanceMonitor = new PerformanceMonitor(scene);
+        performanceLabel.textProperty().bind(performanceMonitor.summaryProperty());
 
         scene.setOnKeyPressed(event -> {
             block = board.getBlock(x, y);
             if (event.getCode() == KeyCode.ENTER || event.getCode() == KeyCode.X) {
                 blockClicked(block);
+            } else if (event.getCode() == KeyCode.F3) {
+                togglePerformanceOverlay();
             } else if (event.getCode() == KeyCode.ESCAPE) {
+                saveReplay();
                 gameWindow.startMenu();
             } else if (event.getCode() == KeyCode.RIGHT || event.getCode() == KeyCode.D) {
-                if (x + 1 >= 0 && x + 1 < 5) {
-                    logger.info("X: " + x + " Y: " + x);
-                    block.paint();
-                    x++;
-                    block = board.getBlock(x, y);
-                    block.hoverPaint();
-                }
+                moveCursor(1, 0);
             } else if (event.getCode() == KeyCode.LEFT || event.getCode() == KeyCode.A) {
-                if (x - 1 >= 0 && x - 1 < 5) {
-                    block.paint();
-                    x--;
-                    block = board.getBlock(x, y);
-                    block.hoverPaint();
-                }
+                moveCursor(-1, 0);
             } else if (event.getCode() == KeyCode.UP || event.getCode() == KeyCode.W) {
-                if (y - 1 >= 0 && y - 1 < 5) {
-                    block.paint();
-                    y--;
-                    block = board.getBlock(x, y);
-                    block.hoverPaint();
-                }
+                moveCursor(0, -1);
             } else if (event.getCode() == KeyCode.DOWN || event.getCode() == KeyCode.S) {
-                if (y + 1 >= 0 && y + 1 < 5) {
-                    block.paint();
-                    y++;
-                    block = board.getBlock(x, y);
-                    block.hoverPaint();
-                }
+                moveCursor(0, 1);
             } else if (event.getCode() == KeyCode.SPACE || event.getCode() == KeyCode.R) {
                 game.swapCurrentPiece();
-                GamePiece piece = game.getCurrentPiece();
-                pieceBoard.displayPiece(piece);
-                GamePiece piece2 = game.getFollowingPiece();
-                pieceBoard2.displayPiece(piece2);
+                showPiece(game.getCurrentPiece(), game.getFollowingPiece());
             } else if (event.getCode() == KeyCode.Q || event.getCode() == KeyCode.Z || event.getCode() == KeyCode.OPEN_BRACKET) {
-                game.rotateCurrentPiece();
-                game.rotateCurrentPiece();
-                game.rotateCurrentPiece();
-                GamePiece piece = game.getCurrentPiece();
-                pieceBoard.displayPiece(piece);
+                game.rotateCurrentPiece(-1);
+                showPiece(game.getCurrentPiece(), game.getFollowingPiece());
             } else if (event.getCode() == KeyCode.E || event.getCode() == KeyCode.C || event.getCode() == KeyCode.CLOSE_BRACKET) {
                 game.rotateCurrentPiece();
-                GamePiece piece = game.getCurrentPiece();
-                pieceBoard.displayPiece(piece);
+                showPiece(game.getCurrentPiece(), game.getFollowingPiece());
             }
         });
     }
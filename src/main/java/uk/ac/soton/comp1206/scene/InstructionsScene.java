@@ -6,15 +6,14 @@ import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.input.KeyCode;
 import javafx.scene.layout.BorderPane;
-import javafx.scene.layout.GridPane;
 import javafx.scene.layout.StackPane;
 import javafx.scene.layout.VBox;
 import javafx.scene.text.Text;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import uk.ac.soton.comp1206.component.PieceBoard;
-import uk.ac.soton.comp1206.game.GamePiece;
-import uk.ac.soton.comp1206.game.Grid;
+import uk.ac.soton.comp1206.component.PieceGallery;
+import uk.ac.soton.comp1206.ui.AssetManager;
+import uk.ac.soton.comp1206.ui.BackgroundImages;
 import uk.ac.soton.comp1206.ui.GamePane;
 import uk.ac.soton.comp1206.ui.GameWindow;
 
@@ -42,6 +41,15 @@ public class InstructionsScene extends BaseScene{
         });
     }
 
+    /**
+     * the instructions never change, so they are kept and shown again rather than rebuilt
+     * @return true
+     */
+    @Override
+    public boolean isReusable() {
+        return true;
+    }
+
     /**
      * displays instructions
      */
@@ -54,14 +62,15 @@ public class InstructionsScene extends BaseScene{
         var instructionsPane = new StackPane();
         instructionsPane.setMaxWidth(gameWindow.getWidth());
         instructionsPane.setMaxHeight(gameWindow.getHeight());
-        instructionsPane.getStyleClass().add("menu-background");
+        BackgroundImages.apply(instructionsPane, BackgroundImages.MENU, gameWindow.getWidth(), gameWindow.getHeight(),
+                root.scalarProperty());
 
         root.getChildren().add(instructionsPane);
 
         var mainPane = new BorderPane();
         instructionsPane.getChildren().add(mainPane);
 
-        ImageView imageView = new ImageView(getClass().getResource("/images/Instructions.png").toExternalForm());
+        ImageView imageView = new ImageView(AssetManager.getImage("/images/Instructions.png"));
         imageView.setFitWidth(487.5);
         imageView.setFitHeight(300);
         var button = new Button();
@@ -73,21 +82,7 @@ public class InstructionsScene extends BaseScene{
         box.getChildren().addAll(title, button);
         mainPane.setCenter(box);
 
-        GridPane gridPane = new GridPane();
-        gridPane.setHgap(10);
-        gridPane.setVgap(10);
-
-        int counter = 0;
-        for (int row = 0; row < 3; row++) {
-            for (int col = 0; col < 5; col++) {
-                PieceBoard pieceBoard = new PieceBoard(new Grid(3, 3), 75, 75);
-                GamePiece piece = GamePiece.createPiece(counter);
-                counter++;
-                pieceBoard.displayPiece(piece);
-                gridPane.add(pieceBoard, col, row);
-            }
-        }
-
-        mainPane.setBottom(gridPane);
+        //Every piece, drawn once into one picture
+        mainPane.setBottom(PieceGallery.createView(root.scalarProperty()));
     }
 }
@@ -15,6 +15,9 @@ import javafx.util.Duration;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import uk.ac.soton.comp1206.game.Multimedia;
+import uk.ac.soton.comp1206.game.MusicEngine;
+import uk.ac.soton.comp1206.ui.AssetManager;
+import uk.ac.soton.comp1206.ui.BackgroundImages;
 import uk.ac.soton.comp1206.ui.GamePane;
 import uk.ac.soton.comp1206.ui.GameWindow;
 
@@ -26,6 +29,10 @@ import java.nio.file.Paths;
 public class MenuScene extends BaseScene {
 
     private static final Logger logger = LogManager.getLogger(MenuScene.class);
+    /**
+     * spins the logo each time the menu is shown
+     */
+    private RotateTransition rotateTransition;
     /**
      * Create a new menu scene
      * @param gameWindow the Game Window this will be displayed in
@@ -49,13 +56,14 @@ public class MenuScene extends BaseScene {
         var menuPane = new StackPane();
         menuPane.setMaxWidth(gameWindow.getWidth());
         menuPane.setMaxHeight(gameWindow.getHeight());
-        menuPane.getStyleClass().add("menu-background");
+        BackgroundImages.apply(menuPane, BackgroundImages.MENU, gameWindow.getWidth(), gameWindow.getHeight(),
+                root.scalarProperty());
         root.getChildren().add(menuPane);
 
         var mainPane = new BorderPane();
         menuPane.getChildren().add(mainPane);
 
-        ImageView imageView = new ImageView(getClass().getResource("/images/TetrECS.png").toExternalForm());
+        ImageView imageView = new ImageView(AssetManager.getImage("/images/TetrECS.png"));
         imageView.setFitWidth(487.5);
         imageView.setFitHeight(100);
         var button = new Button();
@@ -78,17 +86,50 @@ public class MenuScene extends BaseScene {
         b.setSpacing(20);
         mainPane.setCenter(b);
 
-        Multimedia.playAudio("menu.mp3");
-
-        RotateTransition rotateTransition = new RotateTransition(Duration.seconds(5), button);
+        rotateTransition = new RotateTransition(Duration.seconds(5), button);
         rotateTransition.setByAngle(360 * 2); // Rotate the button three times (360 degrees * 3)
         rotateTransition.setCycleCount(1); // Set the cycle count to 1 to spin the button only once
-        rotateTransition.play();
         //Bind the button action to the startGame method in the menu
         button1.setOnAction(this::startGame);
         button2.setOnAction(this::instructions);
     }
 
+    /**
+     * fades to the menu music and spins the logo from the start each time the menu is shown
+     */
+    @Override
+    public void reset() {
+        Multimedia.playMusic(MusicEngine.MENU);
+        rotateTransition.getNode().setRotate(0);
+        rotateTransition.playFromStart();
+    }
+
+    /**
+     * stops spinning the logo while the menu is not shown
+     */
+    @Override
+    public void leave() {
+        rotateTransition.stop();
+    }
+
+    /**
+     * the menu is kept and shown again rather than rebuilt
+     * @return true
+     */
+    @Override
+    public boolean isReusable() {
+        return true;
+    }
+
+    /**
+     * players usually start a game from the menu, so the challenge is prebuilt while the menu is shown
+     * @return ChallengeScene
+     */
+    @Override
+    public Class<? extends BaseScene> getLikelyNextScene() {
+        return ChallengeScene.class;
+    }
+
     /**
      * Initialise the menu
      */
@@ -109,7 +150,7 @@ public class MenuScene extends BaseScene {
      * @param event event
      */
     private void instructions(ActionEvent event) {
-        gameWindow.loadScene(new InstructionsScene(gameWindow));
+        gameWindow.startInstructions();
     }
 
 }
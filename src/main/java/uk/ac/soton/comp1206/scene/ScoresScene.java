@@ -10,6 +10,7 @@ import javafx.util.Pair;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import uk.ac.soton.comp1206.game.Game;
+import uk.ac.soton.comp1206.ui.BackgroundImages;
 import uk.ac.soton.comp1206.ui.GamePane;
 import uk.ac.soton.comp1206.ui.GameWindow;
 
@@ -45,7 +46,8 @@ public class ScoresScene extends BaseScene{
         var scoresPane = new StackPane();
         scoresPane.setMaxWidth(gameWindow.getWidth());
         scoresPane.setMaxHeight(gameWindow.getHeight());
-        scoresPane.getStyleClass().add("menu-background");
+        BackgroundImages.apply(scoresPane, BackgroundImages.MENU, gameWindow.getWidth(), gameWindow.getHeight(),
+                root.scalarProperty());
 
         root.getChildren().add(scoresPane);
 
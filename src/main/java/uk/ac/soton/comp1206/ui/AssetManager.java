@@ -0,0 +1,242 @@
+package uk.ac.soton.comp1206.ui;
+
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyDoubleProperty;
+import javafx.beans.property.ReadOnlyDoubleWrapper;
+import javafx.scene.image.Image;
+import javafx.scene.media.AudioClip;
+import javafx.scene.media.Media;
+import javafx.scene.text.Font;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import uk.ac.soton.comp1206.game.SoundBank;
+
+import java.io.FileNotFoundException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The AssetManager loads the game's fonts, images, music and sound effects on a small pool of background threads, so
+ * they load in parallel with each other and with the FX thread rather than one after another before the first frame.
+ *
+ * Each asset is loaded once and shared. Asking for an asset gives a future which completes when it has loaded,
+ * starting the load if it has not been started; the get methods wait for it. A missing or unreadable asset completes
+ * its future exceptionally. How long each asset took to load is recorded and logged.
+ *
+ * preload starts loading everything the menu and challenge need, and gives a future which completes when all of it
+ * has loaded. Music is left out: the MusicEngine opens each track when it is first played, and streams it.
+ */
+public class AssetManager {
+
+    private static final Logger logger = LogManager.getLogger(AssetManager.class);
+
+    private static final String[] FONTS = {
+            "/style/Orbitron-Regular.ttf", "/style/Orbitron-Bold.ttf", "/style/Orbitron-ExtraBold.ttf"
+    };
+
+    private static final String[] IMAGES = {
+            "/images/TetrECS.png", "/images/Instructions.png"
+    };
+
+    private static final ExecutorService loader = Executors.newFixedThreadPool(
+            Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors())), runnable -> {
+                Thread thread = new Thread(runnable, "Asset loader");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    private static final Map<String, CompletableFuture<?>> assets = new ConcurrentHashMap<>();
+    private static final Map<String, Long> loadTimes = Collections.synchronizedMap(new LinkedHashMap<>());
+
+    private static final AtomicInteger preloaded = new AtomicInteger();
+    private static final ReadOnlyDoubleWrapper progress = new ReadOnlyDoubleWrapper(0);
+    private static CompletableFuture<Void> preload;
+
+    /**
+     * Start loading every asset the game needs up front
+     * @return a future which completes when they have all loaded, or failed to
+     */
+    public static synchronized CompletableFuture<Void> preload() {
+        if (preload != null) {
+            return preload;
+        }
+        long start = System.nanoTime();
+        int total = FONTS.length + IMAGES.length + SoundBank.SOUNDS.length;
+        CompletableFuture<?>[] loads = new CompletableFuture<?>[total];
+        int i = 0;
+        for (String path : FONTS) {
+            loads[i++] = font(path);
+        }
+        for (String path : IMAGES) {
+            loads[i++] = image(path);
+        }
+        for (String sound : SoundBank.SOUNDS) {
+            loads[i++] = clip("/sounds/" + sound);
+        }
+        for (CompletableFuture<?> load : loads) {
+            load.whenComplete((asset, error) -> {
+                double done = (double) preloaded.incrementAndGet() / total;
+                Platform.runLater(() -> progress.set(done));
+            });
+        }
+
+        //A failed asset is logged by its own load, and should not hold up the game
+        preload = CompletableFuture.allOf(loads).handle((result, error) -> {
+            long sum = 0;
+            for (long time : loadTimes.values()) {
+                sum += time;
+            }
+            logger.info("Preloaded {} assets in {} ms, {} ms if loaded one after another", total,
+                    (System.nanoTime() - start) / 1000000, sum / 1000000);
+            return null;
+        });
+        return preload;
+    }
+
+    /**
+     * @return how much of the preload has finished, 0 to 1, updated on the FX thread
+     */
+    public static ReadOnlyDoubleProperty progressProperty() {
+        return progress.getReadOnlyProperty();
+    }
+
+    /**
+     * Load a font
+     * @param path resource path of the font file
+     * @return future font
+     */
+    public static CompletableFuture<Font> font(String path) {
+        return load(path, url -> {
+            try (InputStream in = url.openStream()) {
+                Font font = Font.loadFont(in, 32);
+                if (font == null) {
+                    throw new IllegalArgumentException("Not a font: " + path);
+                }
+                return font;
+            }
+        });
+    }
+
+    /**
+     * Load and decode an image
+     * @param path resource path of the image
+     * @return future image
+     */
+    public static CompletableFuture<Image> image(String path) {
+        return load(path, url -> {
+            Image image = new Image(url.toExternalForm());
+            if (image.isError()) {
+                throw image.getException();
+            }
+            return image;
+        });
+    }
+
+    /**
+     * Get an image, waiting for it to load if it has not yet
+     * @param path resource path of the image
+     * @return image
+     * @throws java.util.concurrent.CompletionException if the image could not be loaded
+     */
+    public static Image getImage(String path) {
+        return image(path).join();
+    }
+
+    /**
+     * Load a sound or piece of music
+     * @param path resource path of the audio file
+     * @return future media
+     */
+    public static CompletableFuture<Media> media(String path) {
+        return load(path, url -> new Media(url.toExternalForm()));
+    }
+
+    /**
+     * Get a sound or piece of music, waiting for it to load if it has not yet
+     * @param path resource path of the audio file
+     * @return media
+     * @throws java.util.concurrent.CompletionException if the media could not be loaded
+     */
+    public static Media getMedia(String path) {
+        return media(path).join();
+    }
+
+    /**
+     * Load and decode a short sound into memory
+     * @param path resource path of the audio file
+     * @return future clip
+     */
+    public static CompletableFuture<AudioClip> clip(String path) {
+        return load(path, url -> new AudioClip(url.toExternalForm()));
+    }
+
+    /**
+     * Get a short sound, waiting for it to load if it has not yet
+     * @param path resource path of the audio file
+     * @return clip
+     * @throws java.util.concurrent.CompletionException if the clip could not be loaded
+     */
+    public static AudioClip getClip(String path) {
+        return clip(path).join();
+    }
+
+    /**
+     * @return the pool assets are loaded on, for other loaders to share
+     */
+    public static ExecutorService getLoader() {
+        return loader;
+    }
+
+    /**
+     * @return how long each asset loaded so far took, in nanoseconds, in the order they finished
+     */
+    public static Map<String, Long> getLoadTimes() {
+        synchronized (loadTimes) {
+            return new LinkedHashMap<>(loadTimes);
+        }
+    }
+
+    /**
+     * Something which loads an asset from a URL
+     * @param <T> type of asset
+     */
+    private interface Loader<T> {
+        T load(URL url) throws Exception;
+    }
+
+    /**
+     * Get the future for an asset, starting to load it if no one has asked for it before
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> CompletableFuture<T> load(String path, Loader<T> loader) {
+        return (CompletableFuture<T>) assets.computeIfAbsent(path, key -> {
+            CompletableFuture<T> future = new CompletableFuture<>();
+            AssetManager.loader.execute(() -> {
+                long start = System.nanoTime();
+                try {
+                    URL url = AssetManager.class.getResource(path);
+                    if (url == null) {
+                        throw new FileNotFoundException("No such asset: " + path);
+                    }
+                    T asset = loader.load(url);
+                    long time = System.nanoTime() - start;
+                    loadTimes.put(path, time);
+                    logger.info("Loaded {} in {} ms", path, time / 1000000);
+                    future.complete(asset);
+                } catch (Throwable e) {
+                    logger.error("Could not load {}: {}", path, e.getMessage());
+                    future.completeExceptionally(e);
+                }
+            });
+            return future;
+        });
+    }
+}
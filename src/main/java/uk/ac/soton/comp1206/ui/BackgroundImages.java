@@ -0,0 +1,194 @@
+package uk.ac.soton.comp1206.ui;
+
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyDoubleProperty;
+import javafx.geometry.Side;
+import javafx.scene.image.Image;
+import javafx.scene.layout.Background;
+import javafx.scene.layout.BackgroundImage;
+import javafx.scene.layout.BackgroundPosition;
+import javafx.scene.layout.BackgroundRepeat;
+import javafx.scene.layout.BackgroundSize;
+import javafx.scene.layout.Region;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.DataInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.URL;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * BackgroundImages gives panes their full screen background pictures, in place of -fx-background-image in the
+ * stylesheet, which has the CSS engine decode the whole picture on the FX thread for every scene that uses it.
+ *
+ * Each picture is decoded on the AssetManager's threads straight to the size it covers on screen, which for the
+ * default window is about a third of the pixels of the original, and the result is kept in a small cache shared by
+ * every scene. A pane's background follows the scale of its GamePane: the picture is decoded again at the new size
+ * when the window grows, in steps, so resizing does not decode it on every frame.
+ */
+public class BackgroundImages {
+
+    private static final Logger logger = LogManager.getLogger(BackgroundImages.class);
+
+    /**
+     * The picture behind the menus and the game
+     */
+    public static final String MENU = "/images/1.jpg";
+
+    /**
+     * How many decoded pictures to keep
+     */
+    private static final int CACHED_IMAGES = 6;
+
+    /**
+     * Decoded pictures by path and size in pixels, least recently used first
+     */
+    private static final Map<String, CompletableFuture<Image>> images = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CompletableFuture<Image>> eldest) {
+            return size() > CACHED_IMAGES;
+        }
+    };
+
+    private static final BackgroundSize COVER = new BackgroundSize(1, 1, true, true, false, true);
+
+    private static final String KEY = "backgroundImage";
+
+    /**
+     * Load a picture decoded to cover an area of the given size in pixels, keeping its aspect ratio
+     * @param path resource path of the picture
+     * @param width width to cover in pixels
+     * @param height height to cover in pixels
+     * @return future picture
+     */
+    public static CompletableFuture<Image> load(String path, double width, double height) {
+        int w = (int) Math.ceil(width);
+        int h = (int) Math.ceil(height);
+        String key = path + "@" + w + "x" + h;
+        synchronized (images) {
+            CompletableFuture<Image> image = images.get(key);
+            if (image == null) {
+                image = CompletableFuture.supplyAsync(() -> decode(path, w, h), AssetManager.getLoader());
+                image.whenComplete((result, error) -> {
+                    if (error != null) {
+                        logger.error("Could not load {}: {}", path, error.getMessage());
+                        synchronized (images) {
+                            images.remove(key);
+                        }
+                    }
+                });
+                images.put(key, image);
+            }
+            return image;
+        }
+    }
+
+    /**
+     * Give a pane a picture as its background, covering it, at the resolution it is shown at
+     * @param region the pane
+     * @param path resource path of the picture
+     * @param width width of the pane
+     * @param height height of the pane
+     * @param scale the scale the pane is drawn at on screen
+     */
+    public static void apply(Region region, String path, double width, double height, ReadOnlyDoubleProperty scale) {
+        update(region, path, width, height, scale.get());
+        scale.addListener((observable, oldScale, newScale) ->
+                update(region, path, width, height, newScale.doubleValue()));
+    }
+
+    /**
+     * Set a pane's background to the picture at the given scale, as soon as it has loaded
+     */
+    private static void update(Region region, String path, double width, double height, double scale) {
+        double step = GamePane.roundScale(scale);
+        CompletableFuture<Image> image = load(path, width * step, height * step);
+        if (region.getProperties().get(KEY) == image) {
+            return;
+        }
+        region.getProperties().put(KEY, image);
+
+        if (image.isDone() && !image.isCompletedExceptionally()) {
+            //Already decoded, so set it now rather than showing a frame without it
+            setBackground(region, image.join());
+            return;
+        }
+        image.thenAcceptAsync(result -> {
+            //A later scale may have asked for a different size while this one was loading
+            if (region.getProperties().get(KEY) == image) {
+                setBackground(region, result);
+            }
+        }, Platform::runLater);
+    }
+
+    private static void setBackground(Region region, Image image) {
+        region.setBackground(new Background(new BackgroundImage(image, BackgroundRepeat.NO_REPEAT,
+                BackgroundRepeat.NO_REPEAT, new BackgroundPosition(Side.LEFT, 0.5, true, Side.TOP, 0.5, true),
+                COVER)));
+    }
+
+    /**
+     * Decode a picture at the smallest size which covers the given area, and never larger than it really is
+     */
+    private static Image decode(String path, int width, int height) {
+        long start = System.nanoTime();
+        URL url = BackgroundImages.class.getResource(path);
+        if (url == null) {
+            throw new IllegalArgumentException(new FileNotFoundException("No such image: " + path));
+        }
+
+        int[] size = readSize(url);
+        double requestedWidth = width;
+        double requestedHeight = height;
+        if (size != null) {
+            //Cover means the larger of the two scales, and the picture is never enlarged
+            double scale = Math.min(1, Math.max((double) width / size[0], (double) height / size[1]));
+            requestedWidth = Math.ceil(size[0] * scale);
+            requestedHeight = Math.ceil(size[1] * scale);
+        }
+
+        Image image = new Image(url.toExternalForm(), requestedWidth, requestedHeight, size != null, true);
+        if (image.isError()) {
+            throw new IllegalArgumentException(image.getException());
+        }
+        logger.info("Decoded {} at {} x {} in {} ms", path, (int) image.getWidth(), (int) image.getHeight(),
+                (System.nanoTime() - start) / 1000000);
+        return image;
+    }
+
+    /**
+     * Read the width and height of a JPEG or PNG from its header, without decoding it
+     * @return width and height, or null if they cannot be found
+     */
+    private static int[] readSize(URL url) {
+        try (DataInputStream in = new DataInputStream(url.openStream())) {
+            int magic = in.readUnsignedShort();
+            if (magic == 0x8950) {
+                //PNG: signature, then the IHDR chunk's length and type, then width and height
+                in.skipNBytes(14);
+                return new int[] {in.readInt(), in.readInt()};
+            }
+            if (magic != 0xFFD8) {
+                return null;
+            }
+            //JPEG: walk the segments until a start of frame, which holds the height then the width
+            while (true) {
+                int marker = in.readUnsignedShort();
+                int length = in.readUnsignedShort();
+                if (marker >= 0xFFC0 && marker <= 0xFFCF && marker != 0xFFC4 && marker != 0xFFC8 && marker != 0xFFCC) {
+                    in.skipNBytes(1);
+                    int height = in.readUnsignedShort();
+                    int width = in.readUnsignedShort();
+                    return new int[] {width, height};
+                }
+                in.skipNBytes(length - 2);
+            }
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package uk.ac.soton.comp1206.ui;
 
+import javafx.beans.property.ReadOnlyDoubleProperty;
+import javafx.beans.property.ReadOnlyDoubleWrapper;
 import javafx.geometry.Pos;
 import javafx.scene.layout.*;
 import javafx.scene.transform.Scale;
@@ -23,9 +25,15 @@ public class GamePane extends StackPane {
 
     private static final Logger logger = LogManager.getLogger(GamePane.class);
 
+    /**
+     * Render scales are rounded up to a multiple of this, so content is only redrawn or reloaded when the window
+     * crosses a step, and nearby scales share a picture
+     */
+    private static final double SCALE_STEP = 0.25;
+
     private final int width;
     private final int height;
-    private double scalar = 1;
+    private final ReadOnlyDoubleWrapper scalar = new ReadOnlyDoubleWrapper(1);
     private final boolean autoScale = true;
 
     /**
@@ -47,7 +55,24 @@ public class GamePane extends StackPane {
      * @param scalar scalar
      */
     protected void setScalar(double scalar) {
-        this.scalar = scalar;
+        this.scalar.set(scalar);
+    }
+
+    /**
+     * The scalar being used by this draw pane, so content can be drawn at the resolution it will be shown at
+     * @return scalar property
+     */
+    public ReadOnlyDoubleProperty scalarProperty() {
+        return scalar.getReadOnlyProperty();
+    }
+
+    /**
+     * Round a render scale up to the next step, so it can be used to decide whether to redraw and as a cache key
+     * @param scale scale, such as the scalar
+     * @return the scale rounded up to a multiple of the step, and at least one step
+     */
+    public static double roundScale(double scale) {
+        return Math.max(SCALE_STEP, Math.ceil(scale / SCALE_STEP) * SCALE_STEP);
     }
 
     /**
@@ -74,15 +99,15 @@ public class GamePane extends StackPane {
         }
 
         //Set up the scale
-        Scale scale = new Scale(scalar,scalar);
+        Scale scale = new Scale(scalar.get(),scalar.get());
 
         //Get the parent width and height
         var parentWidth = getWidth();
         var parentHeight = getHeight();
 
         //Get the padding needed on the top and left
-        var paddingLeft = (parentWidth - (width * scalar)) / 2.0;
-        var paddingTop = (parentHeight - (height * scalar)) / 2.0;
+        var paddingLeft = (parentWidth - (width * scalar.get())) / 2.0;
+        var paddingTop = (parentHeight - (height * scalar.get())) / 2.0;
 
         //Perform the transformation
         Translate translate = new Translate(paddingLeft, paddingTop);
@@ -2,9 +2,9 @@ package uk.ac.soton.comp1206.ui;
 
 import javafx.application.Platform;
 import javafx.scene.Scene;
-import javafx.scene.layout.Pane;
+import javafx.scene.control.ProgressBar;
+import javafx.scene.layout.StackPane;
 import javafx.scene.paint.Color;
-import javafx.scene.text.Font;
 import javafx.stage.Stage;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -12,6 +12,8 @@ import uk.ac.soton.comp1206.App;
 import uk.ac.soton.comp1206.network.Communicator;
 import uk.ac.soton.comp1206.scene.*;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * The GameWindow is the single window for the game where everything takes place. To move between screens in the game,
  * we simply change the scene.
@@ -33,6 +35,16 @@ public class GameWindow {
 
     final Communicator communicator;
 
+    /**
+     * When the window was created, until the first scene the player can use has been shown
+     */
+    private long startTime;
+
+    /**
+     * Keeps reusable scenes and prebuilds the next one likely to be shown
+     */
+    private final SceneRegistry scenes = new SceneRegistry();
+
     /**
      * Create a new GameWindow attached to the given stage with the specified width and height
      * @param stage stage
@@ -42,6 +54,7 @@ public class GameWindow {
     public GameWindow(Stage stage, int width, int height) {
         this.width = width;
         this.height = height;
+        this.startTime = System.nanoTime();
 
         this.stage = stage;
 
@@ -49,41 +62,53 @@ public class GameWindow {
         setupStage();
 
         //Setup resources
-        setupResources();
+        CompletableFuture<Void> resources = setupResources();
 
-        //Setup default scene
+        //Setup default scene, a splash shown while the resources load
         setupDefaultScene();
 
-        //Setup communicator
+        //Register the scenes the window switches between
+        scenes.register(MenuScene.class, () -> new MenuScene(this));
+        scenes.register(InstructionsScene.class, () -> new InstructionsScene(this));
+        scenes.register(ChallengeScene.class, () -> new ChallengeScene(this));
+
+        //Setup communicator, which connects in the background and is not waited for
         communicator = new Communicator("ws://ofb-labs.soton.ac.uk:9700");
 
-        //Go to menu
-        startMenu();
+        //Go to menu once the resources have loaded
+        resources.thenRunAsync(this::startMenu, Platform::runLater);
     }
 
     /**
-     * Setup the font and any other resources we need
+     * Start loading the fonts and any other resources we need in the background, along with the menu's background
+     * @return a future which completes when they have all loaded, or failed to
      */
-    private void setupResources() {
+    private CompletableFuture<Void> setupResources() {
         logger.info("Loading resources");
 
-        //We need to load fonts here due to the Font loader bug with spaces in URLs in the CSS files
-        Font.loadFont(getClass().getResourceAsStream("/style/Orbitron-Regular.ttf"),32);
-        Font.loadFont(getClass().getResourceAsStream("/style/Orbitron-Bold.ttf"),32);
-        Font.loadFont(getClass().getResourceAsStream("/style/Orbitron-ExtraBold.ttf"),32);
+        //A failed resource is logged where it loads, and should not stop the menu being shown
+        CompletableFuture<?> menuBackground = BackgroundImages.load(BackgroundImages.MENU, width, height);
+        return CompletableFuture.allOf(AssetManager.preload(), menuBackground).handle((result, error) -> null);
     }
 
     /**
      * Display the main menu
      */
     public void startMenu() {
-        loadScene(new MenuScene(this));
+        loadScene(scenes.get(MenuScene.class));
     }
 
     /**
      * Display the single player challenge
      */
-    public void startChallenge() { loadScene(new ChallengeScene(this)); }
+    public void startChallenge() { loadScene(scenes.get(ChallengeScene.class)); }
+
+    /**
+     * Display the instructions
+     */
+    public void startInstructions() {
+        loadScene(scenes.get(InstructionsScene.class));
+    }
 
     /**
      * Setup the default settings for the stage itself (the window), such as the title and minimum width and height.
@@ -96,36 +121,83 @@ public class GameWindow {
     }
 
     /**
-     * Load a given scene which extends BaseScene and switch over.
+     * Load a given scene which extends BaseScene and switch over. The scene is built here unless it already has been,
+     * then reset to its starting state.
      * @param newScene new scene to load
      */
     public void loadScene(BaseScene newScene) {
+        long start = System.nanoTime();
+        String name = newScene.getClass().getSimpleName();
+
         //Cleanup remains of the previous scene
         cleanup();
 
-        //Create the new scene and set it up
-        newScene.build();
+        //Create the new scene and set it up, unless it was kept or prebuilt
+        boolean ready = newScene.isBuilt();
+        newScene.buildIfNeeded();
+        newScene.reset();
         currentScene = newScene;
-        scene = newScene.setScene();
+        scene = newScene.getScene();
+        long built = System.nanoTime();
         stage.setScene(scene);
 
-        //Initialise the scene when ready
-        Platform.runLater(() -> currentScene.initialise());
+        //Log how long the switch took once the new scene has been laid out for its first frame
+        afterFirstPulse(scene, () -> {
+            long now = System.nanoTime();
+            logger.info("Switched to {} ({}) in {} ms, {} ms to set up", name, ready ? "ready" : "built",
+                    (now - start) / 1000000, (built - start) / 1000000);
+            if (startTime != 0) {
+                logger.info("First interactive frame {} ms after the window was created", (now - startTime) / 1000000);
+                startTime = 0;
+            }
+        });
+
+        //Initialise the scene when ready, then get the scene likely to come next ready
+        Platform.runLater(() -> {
+            currentScene.initialise();
+            Class<? extends BaseScene> next = currentScene.getLikelyNextScene();
+            if (next != null) {
+                scenes.prebuild(next);
+            }
+        });
+    }
+
+    /**
+     * Run something once, after the next pulse of a scene has been laid out
+     * @param scene scene
+     * @param action what to run
+     */
+    private static void afterFirstPulse(Scene scene, Runnable action) {
+        Runnable[] listener = new Runnable[1];
+        listener[0] = () -> {
+            scene.removePostLayoutPulseListener(listener[0]);
+            action.run();
+        };
+        scene.addPostLayoutPulseListener(listener[0]);
     }
 
     /**
-     * Setup the default scene (an empty black scene) when no scene is loaded
+     * Setup the default scene when no scene is loaded: a black splash showing how much has loaded
      */
     public void setupDefaultScene() {
-        this.scene = new Scene(new Pane(),width,height, Color.BLACK);
+        var progress = new ProgressBar();
+        progress.progressProperty().bind(AssetManager.progressProperty());
+        progress.setPrefWidth(width / 3.0);
+        var splash = new StackPane(progress);
+        this.scene = new Scene(splash,width,height, Color.BLACK);
+        splash.setStyle("-fx-background-color: black;");
         stage.setScene(this.scene);
     }
 
     /**
-     * When switching scenes, perform any cleanup needed, such as removing previous listeners
+     * When switching scenes, perform any cleanup needed, such as stopping the previous scene and removing its
+     * listeners
      */
     public void cleanup() {
         logger.info("Clearing up previous scene");
+        if (currentScene != null) {
+            currentScene.leave();
+        }
         communicator.clearListeners();
     }
 
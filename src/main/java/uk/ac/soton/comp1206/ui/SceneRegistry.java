@@ -0,0 +1,123 @@
+package uk.ac.soton.comp1206.ui;
+
+import javafx.application.Platform;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import uk.ac.soton.comp1206.scene.BaseScene;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * The SceneRegistry hands out the scenes the GameWindow switches between, so that they do not all have to be built
+ * from scratch on every switch.
+ *
+ * A reusable scene is built the first time it is needed and kept, and is reset each time it is shown again. Any
+ * registered scene can also be prebuilt before it is needed: its prepare step runs on a background thread, then it is
+ * built on the FX thread once the FX thread is free, and it is handed out the next time one is asked for. A scene
+ * which is not reusable is only handed out once.
+ */
+public class SceneRegistry {
+
+    private static final Logger logger = LogManager.getLogger(SceneRegistry.class);
+
+    /**
+     * How to create each kind of scene
+     */
+    private final Map<Class<? extends BaseScene>, Supplier<? extends BaseScene>> factories = new HashMap<>();
+
+    /**
+     * Scenes kept for the next time they are asked for: reusable scenes, and scenes being prebuilt
+     */
+    private final Map<Class<? extends BaseScene>, BaseScene> scenes = new HashMap<>();
+
+    /**
+     * The prepare step of each scene being prebuilt
+     */
+    private final Map<BaseScene, CompletableFuture<Void>> preparing = new HashMap<>();
+
+    private final ExecutorService preparer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Scene preparer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Register how to create a kind of scene
+     * @param type kind of scene
+     * @param factory creates a new scene of that kind
+     * @param <T> kind of scene
+     */
+    public <T extends BaseScene> void register(Class<T> type, Supplier<T> factory) {
+        factories.put(type, factory);
+    }
+
+    /**
+     * Get a scene of the given kind to show: the kept scene if there is one, otherwise a new one. If it is being
+     * prebuilt, this waits for its prepare step to finish. Call on the FX thread.
+     * @param type kind of scene
+     * @return the scene
+     * @throws IllegalArgumentException if that kind of scene has not been registered
+     */
+    public BaseScene get(Class<? extends BaseScene> type) {
+        BaseScene scene = scenes.get(type);
+        if (scene == null) {
+            scene = create(type);
+            if (scene.isReusable()) {
+                scenes.put(type, scene);
+            }
+        } else if (!scene.isReusable()) {
+            scenes.remove(type);
+        }
+
+        CompletableFuture<Void> prepared = preparing.remove(scene);
+        if (prepared != null) {
+            try {
+                //Normally long finished, but if the player is quick this waits for the background thread
+                prepared.join();
+            } catch (CompletionException e) {
+                //The scene is left unprepared, so it is prepared again when it is built
+                logger.error("Could not prepare {}: {}", type.getSimpleName(), e.getCause().getMessage());
+            }
+        }
+        return scene;
+    }
+
+    /**
+     * Start getting a scene of the given kind ready before it is asked for. Does nothing if one is already kept.
+     * @param type kind of scene
+     * @throws IllegalArgumentException if that kind of scene has not been registered
+     */
+    public void prebuild(Class<? extends BaseScene> type) {
+        if (scenes.containsKey(type)) {
+            return;
+        }
+        BaseScene scene = create(type);
+        scenes.put(type, scene);
+
+        long start = System.nanoTime();
+        CompletableFuture<Void> prepared = CompletableFuture.runAsync(scene::prepareIfNeeded, preparer);
+        preparing.put(scene, prepared);
+        prepared.whenComplete((result, error) -> Platform.runLater(() -> {
+            //Only build if it has not been handed out in the meantime
+            if (error == null && preparing.get(scene) == prepared) {
+                preparing.remove(scene);
+                scene.buildIfNeeded();
+                logger.info("Prebuilt {} in {} ms", type.getSimpleName(), (System.nanoTime() - start) / 1000000);
+            }
+        }));
+    }
+
+    private BaseScene create(Class<? extends BaseScene> type) {
+        Supplier<? extends BaseScene> factory = factories.get(type);
+        if (factory == null) {
+            throw new IllegalArgumentException("No scene registered for " + type.getSimpleName());
+        }
+        return factory.get();
+    }
+}